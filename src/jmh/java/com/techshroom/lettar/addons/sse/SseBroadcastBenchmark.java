@@ -0,0 +1,131 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.techshroom.lettar.SimpleResponse;
+
+/**
+ * Sending one event to many subscribers, by emitting to each or through an
+ * {@link SseBroadcaster}, on the calling thread or fanned out to a thread
+ * pool. Subscribers are push sinks that discard the data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SseBroadcastBenchmark {
+
+    private static final ServerSentEvent EVENT = ServerSentEvent.builder()
+            .name("update")
+            .id("42")
+            .data("{\"id\":42,\"name\":\"lettar\"}\n{\"id\":43,\"name\":\"sse\"}")
+            .build();
+
+    private static final SseSink DISCARD = new SseSink() {
+
+        @Override
+        public void onData(ByteBuffer data) {
+        }
+
+        @Override
+        public void onClose() {
+        }
+
+    };
+
+    @Param({ "10", "1000", "10000" })
+    public int subscribers;
+
+    private final List<BaseSseEmitter> emitters = new ArrayList<>();
+    private SseBroadcaster broadcaster;
+    private ExecutorService fanOut;
+    private SseBroadcaster fanOutBroadcaster;
+
+    @Setup
+    public void setup() {
+        broadcaster = SseBroadcaster.create();
+        fanOut = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        fanOutBroadcaster = SseBroadcaster.builder().fanOutExecutor(fanOut).build();
+        for (int i = 0; i < subscribers; i++) {
+            BaseSseEmitter emitter = new BaseSseEmitter(SimpleResponse::builder);
+            emitter.subscribe(DISCARD).request(Long.MAX_VALUE);
+            emitters.add(emitter);
+            broadcaster.add(emitter);
+            fanOutBroadcaster.add(emitter);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        broadcaster.close();
+        fanOutBroadcaster.close();
+        fanOut.shutdown();
+        emitters.clear();
+    }
+
+    @Benchmark
+    public int emitEach() {
+        int delivered = 0;
+        for (BaseSseEmitter emitter : emitters) {
+            if (emitter.offer(EVENT).isQueued()) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    @Benchmark
+    public int broadcast() {
+        return broadcaster.broadcast(EVENT);
+    }
+
+    @Benchmark
+    public int broadcastFanOut() {
+        return fanOutBroadcaster.broadcast(EVENT);
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.techshroom.lettar.SimpleResponse;
+
+/**
+ * Emitting ticks for a set of keys to a consumer that never reads, either
+ * conflating by key, or dropping the oldest ticks once as many are queued as
+ * there are keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SseConflationBenchmark {
+
+    @Param({ "10", "1000" })
+    public int keys;
+
+    private ServerSentEvent[] ticks;
+    private BaseSseEmitter conflating;
+    private BaseSseEmitter dropOldest;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ticks = new ServerSentEvent[keys * 4];
+        for (int i = 0; i < ticks.length; i++) {
+            ticks[i] = ServerSentEvent.builder()
+                    .name("price")
+                    .id(String.valueOf(i % keys))
+                    .data("{\"symbol\":" + (i % keys) + ",\"price\":" + (100 + i) + "}")
+                    .build();
+        }
+        SseQueueLimits limits = SseQueueLimits.of(keys, Long.MAX_VALUE, SseOverflowPolicy.DROP_OLDEST);
+        conflating = new ConflatingSseEmitter(SimpleResponse::builder, limits,
+                event -> event.getId().orElse(null));
+        dropOldest = new BaseSseEmitter(SimpleResponse::builder, limits);
+    }
+
+    @TearDown
+    public void tearDown() {
+        conflating.close();
+        dropOldest.close();
+    }
+
+    private ServerSentEvent nextTick() {
+        ServerSentEvent tick = ticks[next];
+        next = next + 1 == ticks.length ? 0 : next + 1;
+        return tick;
+    }
+
+    @Benchmark
+    public SseEmitResult conflate() {
+        return conflating.offer(nextTick());
+    }
+
+    @Benchmark
+    public SseEmitResult dropOldest() {
+        return dropOldest.offer(nextTick());
+    }
+
+}
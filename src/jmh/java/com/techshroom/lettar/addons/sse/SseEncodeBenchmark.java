@@ -0,0 +1,148 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Splitter;
+import com.techshroom.lettar.SimpleResponse;
+import com.techshroom.lettar.addons.sse.SseInputStream.SseOutput;
+
+/**
+ * Serializing events with large data payloads, either with
+ * {@link SseEncoder} or by writing each field to {@link SseOutput}
+ * separately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SseEncodeBenchmark {
+
+    private static final Splitter LINE_SPLITTER = Splitter.onPattern("\r?\n");
+
+    @Param({ "64", "4096", "65536" })
+    public int dataSize;
+
+    private ServerSentEvent event;
+    private final SseEncoder encoder = new SseEncoder();
+    private BaseSseEmitter emitter;
+    private SseInputStream fieldStream;
+    private SseOutput fieldOutput;
+    private int pushed;
+    private final SseSink sink = new SseSink() {
+
+        @Override
+        public void onData(ByteBuffer data) {
+            pushed += data.remaining();
+        }
+
+        @Override
+        public void onClose() {
+        }
+
+    };
+
+    @Setup
+    public void setup() {
+        StringBuilder data = new StringBuilder(dataSize);
+        for (int line = 0; data.length() < dataSize; line++) {
+            if (line > 0) {
+                data.append(line % 2 == 0 ? "\n" : "\r\n");
+            }
+            data.append("{\"id\":").append(line).append(",\"name\":\"café ☃\"}");
+        }
+        event = ServerSentEvent.builder()
+                .name("update")
+                .id("42")
+                .data(data.toString())
+                .build();
+        emitter = new BaseSseEmitter(SimpleResponse::builder);
+        emitter.subscribe(sink).request(Long.MAX_VALUE);
+        fieldStream = new SseInputStream();
+        fieldStream.subscribe(sink).request(Long.MAX_VALUE);
+        fieldOutput = fieldStream.getOutput();
+    }
+
+    @TearDown
+    public void tearDown() {
+        emitter.close();
+        fieldOutput.close();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return encoder.encode(event);
+    }
+
+    @Benchmark
+    public int emit() {
+        emitter.emit(event);
+        return pushed;
+    }
+
+    /**
+     * How events were written before {@link SseEncoder}, for comparison.
+     */
+    @Benchmark
+    public int emitFieldWrites() {
+        fieldOutput.lock();
+        try {
+            fieldOutput.write("event: ");
+            fieldOutput.write(event.getName().get());
+            fieldOutput.write('\n');
+            fieldOutput.write("id: ");
+            fieldOutput.write(event.getId().get());
+            fieldOutput.write('\n');
+            for (String dataLine : LINE_SPLITTER.split(event.getData().get())) {
+                fieldOutput.write("data: ");
+                fieldOutput.write(dataLine);
+                fieldOutput.write('\n');
+            }
+            fieldOutput.write('\n');
+            fieldOutput.flush();
+        } finally {
+            fieldOutput.unlock();
+        }
+        return pushed;
+    }
+
+}
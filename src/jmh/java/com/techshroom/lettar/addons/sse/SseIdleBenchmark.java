@@ -0,0 +1,135 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.techshroom.lettar.SimpleResponse;
+
+/**
+ * CPU used by reader threads blocked on idle {@link SseInputStream
+ * SseInputStreams}. The {@code cpuNanosPerConnection} counter is the CPU time
+ * each idle connection costs per second of wall time, and should stay near
+ * zero.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SseIdleBenchmark {
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class IdleCpu {
+
+        public long cpuNanosPerConnection;
+
+        @Setup
+        public void reset() {
+            cpuNanosPerConnection = 0;
+        }
+
+    }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    @Param({ "100", "1000" })
+    public int connections;
+
+    private final List<BaseSseEmitter> emitters = new ArrayList<>();
+    private final List<Thread> readers = new ArrayList<>();
+
+    @Setup
+    public void setup() throws Exception {
+        for (int i = 0; i < connections; i++) {
+            BaseSseEmitter emitter = new BaseSseEmitter(SimpleResponse::builder);
+            InputStream stream = emitter.getResponseStage().toCompletableFuture().get().getBody();
+            Thread reader = new Thread(() -> drain(stream), "sse-reader-" + i);
+            reader.setDaemon(true);
+            reader.start();
+            emitters.add(emitter);
+            readers.add(reader);
+        }
+    }
+
+    private static void drain(InputStream stream) {
+        byte[] buffer = new byte[1024];
+        try {
+            while (stream.read(buffer) != -1) {
+                // discard
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        emitters.forEach(BaseSseEmitter::close);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        emitters.clear();
+        readers.clear();
+    }
+
+    private long readerCpuNanos() {
+        long total = 0;
+        for (Thread reader : readers) {
+            total += Math.max(THREADS.getThreadCpuTime(reader.getId()), 0);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void idle(IdleCpu counters) throws InterruptedException {
+        long before = readerCpuNanos();
+        Thread.sleep(100);
+        counters.cpuNanosPerConnection += (readerCpuNanos() - before) / connections;
+    }
+
+}
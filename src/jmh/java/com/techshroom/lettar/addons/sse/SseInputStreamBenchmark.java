@@ -0,0 +1,108 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.techshroom.lettar.SimpleResponse;
+
+/**
+ * Emitting events through a {@link BaseSseEmitter} and reading them back
+ * from its {@link SseInputStream}, or having them pushed to an
+ * {@link SseSink}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SseInputStreamBenchmark {
+
+    private static final ServerSentEvent EVENT = ServerSentEvent.builder()
+            .name("update")
+            .id("42")
+            .data("{\"id\":42,\"name\":\"lettar\"}\n{\"id\":43,\"name\":\"sse\"}")
+            .build();
+
+    private BaseSseEmitter emitter;
+    private SseInputStream stream;
+    private final byte[] readBuffer = new byte[8192];
+    private BaseSseEmitter pushEmitter;
+    private int pushed;
+
+    @Setup
+    public void setup() throws Exception {
+        emitter = new BaseSseEmitter(SimpleResponse::builder);
+        stream = (SseInputStream) emitter.getResponseStage().toCompletableFuture().get().getBody();
+        pushEmitter = new BaseSseEmitter(SimpleResponse::builder);
+        pushEmitter.subscribe(new SseSink() {
+
+            @Override
+            public void onData(ByteBuffer data) {
+                pushed += data.remaining();
+            }
+
+            @Override
+            public void onClose() {
+            }
+
+        }).request(Long.MAX_VALUE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        emitter.close();
+        pushEmitter.close();
+    }
+
+    @Benchmark
+    public int emitAndRead() throws IOException {
+        emitter.emit(EVENT);
+        // each event is flushed as one packet, which fits in the buffer
+        return stream.read(readBuffer);
+    }
+
+    @Benchmark
+    public int emitAndPush() {
+        pushEmitter.emit(EVENT);
+        return pushed;
+    }
+
+}
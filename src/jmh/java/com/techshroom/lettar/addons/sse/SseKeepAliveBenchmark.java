@@ -0,0 +1,135 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.techshroom.lettar.SimpleResponse;
+
+/**
+ * CPU used by {@link SseKeepAlive} to keep idle connections alive. The
+ * {@code cpuNanosPerConnection} counter is the keep-alive thread's CPU time
+ * per connection per second of wall time, and {@code heartbeats} counts the
+ * heartbeats sent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SseKeepAliveBenchmark {
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class KeepAliveCounters {
+
+        public long cpuNanosPerConnection;
+        public long heartbeats;
+
+        @Setup
+        public void reset() {
+            cpuNanosPerConnection = 0;
+            heartbeats = 0;
+        }
+
+    }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    @Param({ "1000", "50000" })
+    public int connections;
+
+    private final List<BaseSseEmitter> emitters = new ArrayList<>();
+    private final LongAdder received = new LongAdder();
+    private SseKeepAlive keepAlive;
+    private long keepAliveThreadId;
+
+    @Setup
+    public void setup() {
+        keepAlive = SseKeepAlive.create(Duration.ofMillis(200));
+        SseSink sink = new SseSink() {
+
+            @Override
+            public void onData(ByteBuffer data) {
+                received.increment();
+            }
+
+            @Override
+            public void onClose() {
+            }
+
+        };
+        for (int i = 0; i < connections; i++) {
+            BaseSseEmitter emitter = new BaseSseEmitter(SimpleResponse::builder);
+            emitter.subscribe(sink).request(Long.MAX_VALUE);
+            keepAlive.register(emitter);
+            emitters.add(emitter);
+        }
+        keepAliveThreadId = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().startsWith("lettar-sse-keepalive-") && t.isAlive())
+                .mapToLong(Thread::getId)
+                .max()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    @TearDown
+    public void tearDown() {
+        keepAlive.close();
+        emitters.forEach(BaseSseEmitter::close);
+        emitters.clear();
+    }
+
+    @Benchmark
+    public void idle(KeepAliveCounters counters) throws InterruptedException {
+        long cpuBefore = THREADS.getThreadCpuTime(keepAliveThreadId);
+        long receivedBefore = received.sum();
+        Thread.sleep(100);
+        counters.cpuNanosPerConnection += (THREADS.getThreadCpuTime(keepAliveThreadId) - cpuBefore) / connections;
+        counters.heartbeats += received.sum() - receivedBefore;
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.collections;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Lookups and edits on a typical set of response headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpMultimapBenchmark {
+
+    private final HttpMultimap headers = HttpMultimap.copyOfSingle(ImmutableMap.of(
+            "Cache-Control", "no-cache",
+            "Date", "Tue, 15 Nov 1994 08:12:31 GMT",
+            "Server", "lettar",
+            "Vary", "Accept",
+            "X-Request-Id", "abc123"));
+
+    @Benchmark
+    public String get() {
+        return headers.getSingleValueOrDefault("x-request-id", null);
+    }
+
+    @Benchmark
+    public HttpMultimap setIfAbsent() {
+        return headers.setIfAbsent("content-type", "application/json");
+    }
+
+    @Benchmark
+    public HttpMultimap chainedEdits() {
+        return headers
+                .setIfAbsent("content-type", "text/event-stream")
+                .setIfAbsent("transfer-encoding", "chunked")
+                .add("vary", "Accept-Encoding")
+                .remove("server");
+    }
+
+    @Benchmark
+    public HttpMultimap builderEdits() {
+        return headers.toBuilder()
+                .setIfAbsent("content-type", "text/event-stream")
+                .setIfAbsent("transfer-encoding", "chunked")
+                .add("vary", "Accept-Encoding")
+                .remove("server")
+                .build();
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.techshroom.lettar.SimpleRequest;
+import com.techshroom.lettar.collections.HttpMultimap;
+import com.techshroom.lettar.mime.MimeType;
+import com.techshroom.lettar.pipe.builtins.accept.AcceptPipe;
+import com.techshroom.lettar.pipe.builtins.path.PathPipe;
+import com.techshroom.lettar.routing.HttpMethod;
+
+/**
+ * Allocation per request of the flowing elements, see
+ * {@code gc.alloc.rate.norm} from the gc profiler. Mirrors the {@code with}
+ * calls a typical request goes through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlowingElementBenchmark {
+
+    private static final Key<Boolean> HEAD_AS_GET = Key.of("head-as-get");
+
+    private final SimpleRequest<String> request = SimpleRequest.<String> builder("body")
+            .method(HttpMethod.GET)
+            .path("/users/bob/posts")
+            .headers(ImmutableMap.of("Accept", "application/json"))
+            .build();
+    private final ImmutableList<String> parts = ImmutableList.of("bob");
+    private final MimeType json = MimeType.of("application", "json");
+
+    @Benchmark
+    public FlowingResponse requestLifecycle() {
+        FlowingRequest flow = BaseFlowingRequest.wrap(request)
+                .with(HEAD_AS_GET, false)
+                .with(PathPipe.parts, parts)
+                .with(AcceptPipe.contentType, json)
+                .modify(RequestKeys.body(), body -> body);
+        return BaseFlowingResponse.from(200, "ok", HttpMultimap.of())
+                .with(ResponseKeys.request, flow)
+                .with(ResponseKeys.headers, HttpMultimap.of());
+    }
+
+}
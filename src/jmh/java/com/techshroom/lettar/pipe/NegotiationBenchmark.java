@@ -0,0 +1,95 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.techshroom.lettar.SimpleRequest;
+import com.techshroom.lettar.mime.MimeType;
+import com.techshroom.lettar.pipe.builtins.accept.AcceptPipe;
+import com.techshroom.lettar.routing.HttpMethod;
+
+/**
+ * Content negotiation of a single {@link AcceptPipe} against common
+ * {@code Accept} headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NegotiationBenchmark {
+
+    @Param({
+            "application/json",
+            // Chrome
+            "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.7",
+            // Firefox
+            "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8",
+            // Safari
+            "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8",
+            // fetch() default
+            "*/*",
+            "image/png, image/gif;q=0.5"
+    })
+    public String accept;
+
+    private AcceptPipe pipe;
+    private FlowingRequest request;
+
+    @Setup
+    public void setup() {
+        pipe = AcceptPipe.create(ImmutableList.of(
+                MimeType.of("application", "json"),
+                MimeType.of("text", "plain"),
+                MimeType.of("application", "xml")), null);
+        request = BaseFlowingRequest.wrap(SimpleRequest.builder()
+                .method(HttpMethod.GET)
+                .path("/")
+                .headers(ImmutableMap.of("Accept", accept))
+                .build());
+    }
+
+    @Benchmark
+    public MimeType negotiate() {
+        return pipe.match(request);
+    }
+
+}
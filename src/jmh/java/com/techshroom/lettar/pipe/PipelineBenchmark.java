@@ -0,0 +1,113 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.techshroom.lettar.SimpleRequest;
+import com.techshroom.lettar.collections.HttpMultimap;
+import com.techshroom.lettar.mime.MimeType;
+import com.techshroom.lettar.pipe.builtins.accept.AcceptPipe;
+import com.techshroom.lettar.pipe.builtins.method.MethodPipe;
+import com.techshroom.lettar.pipe.builtins.path.PathPipe;
+import com.techshroom.lettar.pipe.impl.CompiledPipeline;
+import com.techshroom.lettar.pipe.impl.SimplePipeline;
+import com.techshroom.lettar.routing.HttpMethod;
+import com.techshroom.lettar.routing.HttpMethodPredicate;
+import com.techshroom.lettar.routing.PathRoutePredicate;
+
+/**
+ * Compares {@link SimplePipeline} against {@link CompiledPipeline} for a
+ * typical method + path + accept pipeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param({ "simple", "compiled" })
+    public String pipeline;
+
+    private Pipeline target;
+    private FlowingRequest matching;
+    private FlowingRequest rejected;
+
+    @Setup
+    public void setup() {
+        PipelineFactory factory = pipeline.equals("compiled")
+                ? CompiledPipeline::create
+                : SimplePipeline::create;
+        target = factory.create(
+                ImmutableList.of(
+                        MethodPipe.create(HttpMethodPredicate.of(HttpMethod.GET)),
+                        PathPipe.create(ImmutableList.of(PathRoutePredicate.parse("/users/{re:.+}/posts"))),
+                        AcceptPipe.create(ImmutableList.of(MimeType.of("application", "json")), null)),
+                ImmutableList.of(),
+                request -> CompletableFuture.completedFuture(
+                        BaseFlowingResponse.from(200, "ok", HttpMultimap.of())
+                                .with(ResponseKeys.request, request)),
+                ImmutableList.of(),
+                MoreExecutors.directExecutor());
+        matching = BaseFlowingRequest.wrap(SimpleRequest.builder()
+                .method(HttpMethod.GET)
+                .path("/users/bob/posts")
+                .headers(ImmutableMap.of("Accept", "application/json"))
+                .build());
+        rejected = BaseFlowingRequest.wrap(SimpleRequest.builder()
+                .method(HttpMethod.GET)
+                .path("/users/bob/comments")
+                .build());
+    }
+
+    @Benchmark
+    public Object handleMatching() {
+        return target.handle(matching).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public Object handleRejected() {
+        return target.handle(rejected);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.ImmutableList;
+import com.techshroom.lettar.Response;
+import com.techshroom.lettar.SimpleResponse;
+import com.techshroom.lettar.mime.MimeType;
+
+/**
+ * {@link RouteInvoker#invoke} for a single route, and for routes of every
+ * specialized arity called from the same site, as a router with many
+ * controllers does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteInvokerBenchmark {
+
+    private static final Response<String> OK = SimpleResponse.of(200, "ok");
+
+    public static Response<String> route0() {
+        return OK;
+    }
+
+    public static Response<String> route1(String a) {
+        return OK;
+    }
+
+    public static Response<String> route2(String a, int b) {
+        return OK;
+    }
+
+    public static Response<String> route3(String a, String b, String c) {
+        return OK;
+    }
+
+    public static Response<String> route4(String a, String b, String c, long d) {
+        return OK;
+    }
+
+    private final MimeType json = MimeType.of("application", "json");
+    private final List<String> parts = ImmutableList.of("a", "2", "c", "4");
+    private RouteInvoker[] invokers;
+
+    @Setup
+    public void setup() throws Exception {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        invokers = new RouteInvoker[RouteInvoker.MAX_SPECIALIZED_ARITY + 1];
+        for (int i = 0; i < invokers.length; i++) {
+            String name = "route" + i;
+            MethodHandle handle = null;
+            for (Method method : RouteInvokerBenchmark.class.getMethods()) {
+                if (method.getName().equals(name)) {
+                    handle = lookup.unreflect(method);
+                }
+            }
+            invokers[i] = RouteInvoker.create(PRIMethodHandles.routeTransform(handle, name));
+        }
+    }
+
+    @Benchmark
+    public CompletionStage<Response<Object>> invokeSingle() {
+        return invokers[2].invoke(null, json, parts);
+    }
+
+    @Benchmark
+    public void invokeMixed(Blackhole bh) {
+        for (RouteInvoker invoker : invokers) {
+            bh.consume(invoker.invoke(null, json, parts));
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.techshroom.lettar.Request;
+import com.techshroom.lettar.Response;
+import com.techshroom.lettar.SimpleRequest;
+import com.techshroom.lettar.collections.HttpMultimap;
+import com.techshroom.lettar.mime.MimeType;
+import com.techshroom.lettar.pipe.builtins.accept.AcceptPipe;
+import com.techshroom.lettar.pipe.builtins.method.MethodPipe;
+import com.techshroom.lettar.pipe.builtins.path.PathPipe;
+import com.techshroom.lettar.pipe.impl.SimplePipeline;
+import com.techshroom.lettar.routing.HttpMethod;
+import com.techshroom.lettar.routing.HttpMethodPredicate;
+import com.techshroom.lettar.routing.PathRoutePredicate;
+
+/**
+ * {@link PipelineRouter#route(Request)} over a synthetic set of constant,
+ * regex and end-chomp routes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark {
+
+    @Param({ "10", "1000", "10000" })
+    public int routes;
+
+    @Param({ "linear", "indexed", "trie" })
+    public String dispatch;
+
+    private PipelineRouter<String, Object> router;
+    private Request<String> first;
+    private Request<String> last;
+    private Request<String> missing;
+
+    @Setup
+    public void setup() {
+        PipelineRouter.Builder builder = PipelineRouter.builder()
+                .dispatchIndex(!dispatch.equals("linear"))
+                .pathTrie(dispatch.equals("trie"))
+                .notFoundPipeline(pipeline(ImmutableList.of(), 404))
+                .serverErrorPipeline(pipeline(ImmutableList.of(), 500));
+        for (int i = 0; i < routes; i++) {
+            builder.addPipeline(pipeline(ImmutableList.of(
+                    MethodPipe.create(HttpMethodPredicate.of(HttpMethod.GET)),
+                    PathPipe.create(ImmutableList.of(PathRoutePredicate.parse(route(i)))),
+                    AcceptPipe.create(ImmutableList.of(MimeType.of("application", "json")), null)), 200));
+        }
+        router = builder.build();
+        first = request("/svc0/status");
+        last = request(path(routes - 1));
+        missing = request("/nothing/here");
+    }
+
+    private static String route(int i) {
+        switch (i % 3) {
+            case 0:
+                return "/svc" + i + "/status";
+            case 1:
+                return "/svc" + i + "/items/{re:\\d+}";
+            default:
+                return "/svc" + i + "/files/{**}";
+        }
+    }
+
+    private static String path(int i) {
+        switch (i % 3) {
+            case 0:
+                return "/svc" + i + "/status";
+            case 1:
+                return "/svc" + i + "/items/42";
+            default:
+                return "/svc" + i + "/files/a/b/c.txt";
+        }
+    }
+
+    private static Request<String> request(String path) {
+        return SimpleRequest.<String> builder()
+                .method(HttpMethod.GET)
+                .path(path)
+                .headers(ImmutableMap.of("Accept", "application/json"))
+                .build();
+    }
+
+    private static Pipeline pipeline(ImmutableList<FilterPipe> filters, int status) {
+        ImmutableList<InputPipe> inputs = filters.stream()
+                .filter(InputPipe.class::isInstance)
+                .map(InputPipe.class::cast)
+                .collect(ImmutableList.toImmutableList());
+        return SimplePipeline.create(filters, inputs,
+                request -> CompletableFuture.completedFuture(
+                        BaseFlowingResponse.from(status, "ok", HttpMultimap.of())
+                                .with(ResponseKeys.request, request)),
+                ImmutableList.of());
+    }
+
+    @Benchmark
+    public Response<Object> routeFirst() {
+        return router.route(first).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public Response<Object> routeLast() {
+        return router.route(last).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public Response<Object> routeMissing() {
+        return router.route(missing).toCompletableFuture().join();
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.routing;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.techshroom.lettar.routing.PathRoutePredicate.MatchResult;
+
+/**
+ * {@link PathRoutePredicate} matching for constant, {@code re:} and
+ * {@code **} routes, both matching and failing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathMatchBenchmark {
+
+    @Param({ "constant", "regex", "endChomp" })
+    public String kind;
+
+    private PathRoutePredicate predicate;
+    private List<String> matching;
+    private List<String> failing;
+    private int[] captures;
+
+    @Setup
+    public void setup() {
+        switch (kind) {
+            case "constant":
+                predicate = PathRoutePredicate.parse("/api/users/list");
+                matching = PathSegments.of("/api/users/list");
+                failing = PathSegments.of("/api/users/lost");
+                break;
+            case "regex":
+                predicate = PathRoutePredicate.parse("/api/users/{re:\\d+}");
+                matching = PathSegments.of("/api/users/12345");
+                failing = PathSegments.of("/api/users/bob");
+                break;
+            case "endChomp":
+                predicate = PathRoutePredicate.parse("/static/{**}");
+                matching = PathSegments.of("/static/css/site/main.css");
+                failing = PathSegments.of("/dynamic/css/site/main.css");
+                break;
+            default:
+                throw new IllegalArgumentException(kind);
+        }
+        captures = new int[predicate.getNumberOfCapturedParts() * 2];
+    }
+
+    @Benchmark
+    public MatchResult matchResult() {
+        return predicate.matches(matching);
+    }
+
+    @Benchmark
+    public boolean matchOffsets() {
+        return predicate.matches(matching, captures);
+    }
+
+    @Benchmark
+    public boolean fail() {
+        return predicate.matches(failing, captures);
+    }
+
+}
@@ -29,71 +29,102 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.function.Supplier;
 
-import com.google.common.base.Splitter;
+import javax.annotation.Nullable;
+
 import com.techshroom.lettar.Response;
 import com.techshroom.lettar.SimpleResponse;
 import com.techshroom.lettar.addons.sse.SseInputStream.SseOutput;
 
 public class BaseSseEmitter implements SseEmitter {
 
-    private static final Splitter LINE_SPLITTER = Splitter.onPattern("\r?\n");
-
     private final CompletableFuture<Response<InputStream>> stage;
-    private final SseInputStream stream = new SseInputStream();
-    private final SseOutput output = stream.getOutput();
+    private final SseInputStream stream;
+    private final SseOutput output;
 
     public BaseSseEmitter(Supplier<SimpleResponse.Builder<InputStream>> responseBuilder) {
+        this(responseBuilder, SseQueueLimits.UNBOUNDED);
+    }
+
+    public BaseSseEmitter(Supplier<SimpleResponse.Builder<InputStream>> responseBuilder, SseQueueLimits limits) {
+        this.stream = new SseInputStream(limits);
+        this.output = stream.getOutput();
         SimpleResponse<InputStream> response = responseBuilder.get()
                 .statusCodeIfUnset(200)
                 .body(stream)
-                .modifyHeaders(headers -> headers
+                .modifyHeaders(headers -> headers.toBuilder()
                         .setIfAbsent("content-type", "text/event-stream")
-                        .setIfAbsent("transfer-encoding", "chunked"))
+                        .setIfAbsent("transfer-encoding", "chunked")
+                        .build())
                 .build();
         stage = CompletableFuture.completedFuture(response);
     }
 
     @Override
     public boolean emit(ServerSentEvent event) {
-        // lock so that no exceptions are produced
-        // because the stream can't close while we're writing
-        output.lock();
-        try {
-            if (!stream.isOpen()) {
-                return false;
-            }
-            if (event.getComment().isPresent()) {
-                for (String commentLine : LINE_SPLITTER.split(event.getComment().get())) {
-                    output.write(": ");
-                    output.write(commentLine);
-                    output.write('\n');
-                }
-            }
-            if (event.getName().isPresent()) {
-                output.write("event: ");
-                output.write(event.getName().get());
-                output.write('\n');
-            }
-            if (event.getId().isPresent()) {
-                output.write("id: ");
-                output.write(event.getId().get());
-                output.write('\n');
-            }
-            if (event.getData().isPresent()) {
-                for (String dataLine : LINE_SPLITTER.split(event.getData().get())) {
-                    output.write("data: ");
-                    output.write(dataLine);
-                    output.write('\n');
-                }
-            }
-            // ends the event
-            output.write('\n');
-
-            output.flush();
-        } finally {
-            output.unlock();
-        }
-        return true;
+        return offer(event).isOpen();
+    }
+
+    @Override
+    public SseEmitResult offer(ServerSentEvent event) {
+        // encoded and queued under the stream lock,
+        // so the stream can't close while we're writing
+        return output.writeEvent(event, conflationKey(event));
+    }
+
+    /**
+     * Emits an event that was already {@linkplain SseEncoder#encode encoded}.
+     * 
+     * @param event
+     *            - the event
+     * @param packet
+     *            - the encoded event, which is not copied
+     * @return the result of queueing the event
+     */
+    SseEmitResult emitEncoded(ServerSentEvent event, byte[] packet) {
+        return output.writePacket(packet, conflationKey(event));
+    }
+
+    /**
+     * Returns the key that queued events are replaced by, or {@code null} to
+     * queue every event.
+     * 
+     * @param event
+     *            - the event being emitted
+     * @return the conflation key, or {@code null}
+     */
+    @Nullable
+    Object conflationKey(ServerSentEvent event) {
+        return null;
+    }
+
+    /**
+     * Emits a keep-alive packet, unless events are already waiting for the
+     * consumer.
+     * 
+     * @param packet
+     *            - the encoded keep-alive
+     * @return if the emitter is open
+     */
+    boolean emitKeepAlive(byte[] packet) {
+        return output.writeIfIdle(packet);
+    }
+
+    long getLastEmitNanos() {
+        return stream.getLastQueuedNanos();
+    }
+
+    /**
+     * @return the encoded bytes queued and not yet taken by the consumer
+     */
+    public long getQueuedBytes() {
+        return stream.getQueuedBytes();
+    }
+
+    /**
+     * @return the events queued and not yet taken by the consumer
+     */
+    public int getQueuedEvents() {
+        return stream.getQueuedEvents();
     }
 
     @Override
@@ -101,6 +132,11 @@ public class BaseSseEmitter implements SseEmitter {
         return stage;
     }
 
+    @Override
+    public SseSubscription subscribe(SseSink sink) {
+        return stream.subscribe(sink);
+    }
+
     @Override
     public void close() {
         output.close();
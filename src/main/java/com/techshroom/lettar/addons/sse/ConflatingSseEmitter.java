@@ -0,0 +1,70 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.InputStream;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import com.techshroom.lettar.SimpleResponse;
+
+/**
+ * An emitter for streams of state updates, where only the latest state
+ * matters. Each event has a conflation key, such as its name plus the ID of
+ * the entity it updates. An event replaces the queued event with the same
+ * key, if the consumer hasn't taken it yet, keeping its place in the queue.
+ * Slow consumers then skip straight to the latest state, and only queue one
+ * event per key.
+ * 
+ * <p>
+ * Events with a {@code null} key are queued as usual.
+ * </p>
+ */
+public class ConflatingSseEmitter extends BaseSseEmitter {
+
+    private final Function<? super ServerSentEvent, ?> keyFunction;
+
+    public ConflatingSseEmitter(Supplier<SimpleResponse.Builder<InputStream>> responseBuilder,
+            Function<? super ServerSentEvent, ?> keyFunction) {
+        this(responseBuilder, SseQueueLimits.UNBOUNDED, keyFunction);
+    }
+
+    public ConflatingSseEmitter(Supplier<SimpleResponse.Builder<InputStream>> responseBuilder, SseQueueLimits limits,
+            Function<? super ServerSentEvent, ?> keyFunction) {
+        super(responseBuilder, limits);
+        this.keyFunction = checkNotNull(keyFunction, "keyFunction");
+    }
+
+    @Nullable
+    @Override
+    Object conflationKey(ServerSentEvent event) {
+        return keyFunction.apply(event);
+    }
+
+}
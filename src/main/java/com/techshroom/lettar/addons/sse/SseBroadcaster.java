@@ -0,0 +1,289 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.techshroom.lettar.Request;
+
+/**
+ * Sends events to a set of {@link SseEmitter emitters}. Each event is encoded
+ * once, and the same bytes are queued to every {@link BaseSseEmitter}. Other
+ * emitters are sent the event itself. Emitters found closed while
+ * broadcasting, including ones disconnected for falling behind, are removed.
+ * 
+ * <p>
+ * Broadcasts run on the calling thread by default. With a
+ * {@linkplain Builder#fanOutExecutor fan-out executor}, larger sets are split
+ * into batches that are emitted to concurrently, and the calling thread waits
+ * for them all. Emitters using {@link SseOverflowPolicy#BLOCK} can hold up a
+ * broadcast, and the thread emitting to them, for up to their block timeout,
+ * so give such emitters a dedicated executor rather than a shared pool.
+ * </p>
+ * 
+ * <p>
+ * A broadcaster with a replay buffer keeps its latest events, so clients
+ * reconnecting with a {@code Last-Event-ID} can be
+ * {@linkplain #resume(SseEmitter, String) resumed} with only the events they
+ * missed. Broadcasts are then serialized with each other and with resuming.
+ * </p>
+ */
+public final class SseBroadcaster implements AutoCloseable {
+
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    public static SseBroadcaster create() {
+        return builder().build();
+    }
+
+    /**
+     * Creates a broadcaster that keeps its latest {@code replayCapacity}
+     * events for resuming clients.
+     * 
+     * @param replayCapacity
+     *            - the number of events to keep
+     * @return the broadcaster
+     */
+    public static SseBroadcaster withReplay(int replayCapacity) {
+        checkArgument(replayCapacity > 0, "replayCapacity must be positive, got %s", replayCapacity);
+        return builder().replayCapacity(replayCapacity).build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        @Nullable
+        private Executor fanOutExecutor;
+        private int fanOutBatchSize = 1024;
+        private int replayCapacity;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the executor that emits to batches of emitters concurrently.
+         * By default there is none, and broadcasts run on the calling thread.
+         * 
+         * @param fanOutExecutor
+         *            - the fan-out executor
+         * @return this builder
+         */
+        public Builder fanOutExecutor(Executor fanOutExecutor) {
+            this.fanOutExecutor = checkNotNull(fanOutExecutor, "fanOutExecutor");
+            return this;
+        }
+
+        /**
+         * Sets how many emitters each fan-out batch holds. Sets no larger
+         * than this are emitted to on the calling thread. Defaults to 1024.
+         * 
+         * @param fanOutBatchSize
+         *            - the number of emitters per batch
+         * @return this builder
+         */
+        public Builder fanOutBatchSize(int fanOutBatchSize) {
+            checkArgument(fanOutBatchSize > 0, "fanOutBatchSize must be positive, got %s", fanOutBatchSize);
+            this.fanOutBatchSize = fanOutBatchSize;
+            return this;
+        }
+
+        /**
+         * Sets how many of the latest events are kept for resuming clients.
+         * Defaults to zero, keeping none.
+         * 
+         * @param replayCapacity
+         *            - the number of events to keep
+         * @return this builder
+         */
+        public Builder replayCapacity(int replayCapacity) {
+            checkArgument(replayCapacity >= 0, "replayCapacity must not be negative, got %s", replayCapacity);
+            this.replayCapacity = replayCapacity;
+            return this;
+        }
+
+        public SseBroadcaster build() {
+            return new SseBroadcaster(fanOutExecutor, fanOutBatchSize,
+                    replayCapacity == 0 ? null : new SseReplayBuffer(replayCapacity));
+        }
+
+    }
+
+    private final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+    @Nullable
+    private final Executor fanOutExecutor;
+    private final int fanOutBatchSize;
+    @Nullable
+    private final SseReplayBuffer replay;
+    private final Lock replayLock = new ReentrantLock();
+
+    private SseBroadcaster(@Nullable Executor fanOutExecutor, int fanOutBatchSize, @Nullable SseReplayBuffer replay) {
+        this.fanOutExecutor = fanOutExecutor;
+        this.fanOutBatchSize = fanOutBatchSize;
+        this.replay = replay;
+    }
+
+    public void add(SseEmitter emitter) {
+        emitters.add(checkNotNull(emitter, "emitter"));
+    }
+
+    public boolean remove(SseEmitter emitter) {
+        return emitters.remove(emitter);
+    }
+
+    public int size() {
+        return emitters.size();
+    }
+
+    /**
+     * Adds an emitter for a client reconnecting with the {@code Last-Event-ID}
+     * header of {@code request}.
+     * 
+     * @param emitter
+     *            - the emitter to add
+     * @param request
+     *            - the reconnecting request
+     * @return if the missed events were replayed
+     * @see #resume(SseEmitter, String)
+     */
+    public boolean resume(SseEmitter emitter, Request<?> request) {
+        return resume(emitter, request.getHeaders().getSingleValue(LAST_EVENT_ID).orElse(null));
+    }
+
+    /**
+     * Adds an emitter for a client that last saw the event with ID
+     * {@code lastEventId}, first emitting the events it missed. Returns
+     * {@code false} if there is no ID, or it is no longer in the replay buffer,
+     * so the client needs to be sent the full state.
+     * 
+     * @param emitter
+     *            - the emitter to add
+     * @param lastEventId
+     *            - the ID of the last event the client saw
+     * @return if the missed events were replayed
+     */
+    public boolean resume(SseEmitter emitter, @Nullable String lastEventId) {
+        checkNotNull(emitter, "emitter");
+        if (replay == null) {
+            add(emitter);
+            return false;
+        }
+        replayLock.lock();
+        try {
+            // nothing is broadcast between the replay and going live
+            boolean replayed = replay.replayAfter(lastEventId, (event, packet) -> emit(emitter, event, packet));
+            add(emitter);
+            return replayed;
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    /**
+     * Emits an event to every emitter.
+     * 
+     * @param event
+     *            - the event to send
+     * @return the number of emitters the event was queued to
+     */
+    public int broadcast(ServerSentEvent event) {
+        byte[] packet = new SseEncoder().encode(event);
+        if (replay == null) {
+            return emitToAll(event, packet);
+        }
+        replayLock.lock();
+        try {
+            replay.record(event, packet);
+            return emitToAll(event, packet);
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    private int emitToAll(ServerSentEvent event, byte[] packet) {
+        if (fanOutExecutor == null || emitters.size() <= fanOutBatchSize) {
+            return emitTo(emitters, event, packet);
+        }
+        List<SseEmitter> snapshot = ImmutableList.copyOf(emitters);
+        List<CompletableFuture<Integer>> batches = new ArrayList<>();
+        for (int from = fanOutBatchSize; from < snapshot.size(); from += fanOutBatchSize) {
+            List<SseEmitter> batch = snapshot.subList(from, Math.min(from + fanOutBatchSize, snapshot.size()));
+            batches.add(CompletableFuture.supplyAsync(() -> emitTo(batch, event, packet), fanOutExecutor));
+        }
+        // the first batch runs here while the others are out
+        int queued = emitTo(snapshot.subList(0, fanOutBatchSize), event, packet);
+        for (CompletableFuture<Integer> batch : batches) {
+            queued += batch.join();
+        }
+        return queued;
+    }
+
+    private int emitTo(Iterable<SseEmitter> targets, ServerSentEvent event, byte[] packet) {
+        int queued = 0;
+        for (SseEmitter emitter : targets) {
+            SseEmitResult result = emit(emitter, event, packet);
+            if (!result.isOpen()) {
+                emitters.remove(emitter);
+            }
+            if (result.isQueued()) {
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    private static SseEmitResult emit(SseEmitter emitter, ServerSentEvent event, byte[] packet) {
+        return emitter instanceof BaseSseEmitter
+                ? ((BaseSseEmitter) emitter).emitEncoded(event, packet)
+                : emitter.offer(event);
+    }
+
+    /**
+     * Closes and removes every emitter.
+     */
+    @Override
+    public void close() {
+        emitters.removeIf(emitter -> {
+            emitter.close();
+            return true;
+        });
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+/**
+ * The outcome of {@linkplain SseEmitter#offer offering} an event.
+ */
+public enum SseEmitResult {
+    /**
+     * The event was queued.
+     */
+    QUEUED(true, true),
+    /**
+     * The event was queued, after dropping older events to make room.
+     */
+    QUEUED_DROPPED_OLDEST(true, true),
+    /**
+     * The event replaced a queued event with the same conflation key.
+     */
+    CONFLATED(true, true),
+    /**
+     * The queue was full, and the event was dropped.
+     */
+    DROPPED(false, true),
+    /**
+     * The queue was full, and the emitter was closed to cut off the slow
+     * consumer.
+     */
+    DISCONNECTED(false, false),
+    /**
+     * The emitter was already closed.
+     */
+    CLOSED(false, false);
+
+    private final boolean queued;
+    private final boolean open;
+
+    SseEmitResult(boolean queued, boolean open) {
+        this.queued = queued;
+        this.open = open;
+    }
+
+    /**
+     * @return if the event will be delivered
+     */
+    public boolean isQueued() {
+        return queued;
+    }
+
+    /**
+     * @return if the emitter is still open
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+}
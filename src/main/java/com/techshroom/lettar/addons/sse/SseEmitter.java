@@ -41,8 +41,37 @@ public interface SseEmitter extends AutoCloseable {
      */
     boolean emit(ServerSentEvent event);
 
+    /**
+     * Emits an event, reporting if it was queued, or was dropped or
+     * disconnected the consumer because the consumer is too far behind. The
+     * default only tells open and closed emitters apart.
+     * 
+     * @param event
+     *            - the event to send
+     * @return the result of queueing the event
+     */
+    default SseEmitResult offer(ServerSentEvent event) {
+        return emit(event) ? SseEmitResult.QUEUED : SseEmitResult.CLOSED;
+    }
+
     CompletionStage<Response<InputStream>> getResponseStage();
 
+    /**
+     * Delivers the encoded stream to {@code sink} as demand allows, instead of
+     * through the blocking body of the {@linkplain #getResponseStage()
+     * response}. This lets one thread serve many streams. The response body
+     * can't be read after subscribing. The default doesn't support sinks.
+     * 
+     * @param sink
+     *            - the sink to deliver to
+     * @return the subscription, which starts with no demand
+     * @throws UnsupportedOperationException
+     *             if this emitter can't deliver to a sink
+     */
+    default SseSubscription subscribe(SseSink sink) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support sinks");
+    }
+
     boolean isOpen();
 
     @Override
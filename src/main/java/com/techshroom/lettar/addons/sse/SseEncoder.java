@@ -0,0 +1,156 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+
+/**
+ * Serializes {@link ServerSentEvent events} to the UTF-8 bytes of the
+ * {@code text/event-stream} format. Multi-line values are split on
+ * {@code \n} and {@code \r\n}, with each line getting its own field.
+ * 
+ * <p>
+ * Events are encoded straight into a buffer that is reused between events,
+ * so an encoder must not be used by multiple threads at once.
+ * </p>
+ */
+final class SseEncoder {
+
+    private static final byte[] COMMENT = ": ".getBytes(UTF_8);
+    private static final byte[] EVENT = "event: ".getBytes(UTF_8);
+    private static final byte[] ID = "id: ".getBytes(UTF_8);
+    private static final byte[] DATA = "data: ".getBytes(UTF_8);
+    // don't keep a huge buffer around because of one big event
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private byte[] buf = new byte[256];
+    private int count;
+
+    /**
+     * Encodes an event.
+     * 
+     * @param event
+     *            - the event to encode
+     * @return a new array holding the encoded event
+     */
+    byte[] encode(ServerSentEvent event) {
+        count = 0;
+        if (event.getComment().isPresent()) {
+            writeLines(COMMENT, event.getComment().get());
+        }
+        if (event.getName().isPresent()) {
+            writeField(EVENT, event.getName().get(), 0, event.getName().get().length());
+        }
+        if (event.getId().isPresent()) {
+            writeField(ID, event.getId().get(), 0, event.getId().get().length());
+        }
+        if (event.getData().isPresent()) {
+            writeLines(DATA, event.getData().get());
+        }
+        // ends the event
+        writeByte('\n');
+        byte[] packet = Arrays.copyOf(buf, count);
+        if (buf.length > MAX_RETAINED_CAPACITY) {
+            buf = new byte[256];
+        }
+        return packet;
+    }
+
+    private void writeLines(byte[] prefix, String value) {
+        int start = 0;
+        while (true) {
+            int newline = value.indexOf('\n', start);
+            if (newline == -1) {
+                writeField(prefix, value, start, value.length());
+                return;
+            }
+            int end = newline > start && value.charAt(newline - 1) == '\r' ? newline - 1 : newline;
+            writeField(prefix, value, start, end);
+            start = newline + 1;
+        }
+    }
+
+    private void writeField(byte[] prefix, String value, int start, int end) {
+        // at most 3 bytes per char, plus the newline
+        ensureCapacity(prefix.length + (end - start) * 3 + 1);
+        System.arraycopy(prefix, 0, buf, count, prefix.length);
+        count += prefix.length;
+        writeUtf8(value, start, end);
+        buf[count++] = '\n';
+    }
+
+    private void writeUtf8(String value, int start, int end) {
+        byte[] buf = this.buf;
+        int count = this.count;
+        int i = start;
+        // fast path for ASCII
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            buf[count++] = (byte) c;
+        }
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buf[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[count++] = (byte) (0xC0 | c >> 6);
+                buf[count++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+                // a pair is 2 chars and 4 bytes, which fits in the 6 reserved
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buf[count++] = (byte) (0xF0 | codePoint >> 18);
+                buf[count++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buf[count++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buf[count++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // unpaired, replaced like String.getBytes does
+                buf[count++] = '?';
+            } else {
+                buf[count++] = (byte) (0xE0 | c >> 12);
+                buf[count++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buf[count++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        this.count = count;
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        buf[count++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra) {
+        int needed = count + extra;
+        if (needed > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(needed, buf.length * 2));
+        }
+    }
+
+}
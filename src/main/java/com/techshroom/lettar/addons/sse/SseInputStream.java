@@ -24,24 +24,39 @@
  */
 package com.techshroom.lettar.addons.sse;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+
+import com.google.common.math.LongMath;
+import com.techshroom.lettar.util.Logging;
+
 public class SseInputStream extends InputStream {
 
     public static class SseOutput {
 
         private final SseInputStream stream;
         private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final SseEncoder encoder = new SseEncoder();
 
         private SseOutput(SseInputStream stream) {
             this.stream = stream;
@@ -59,12 +74,14 @@ public class SseInputStream extends InputStream {
         }
 
         public void write(char data) {
+            if (data >= 0x80) {
+                // multi-byte in UTF-8, lone surrogates are replaced
+                write(String.valueOf(data));
+                return;
+            }
             stream.lock.lock();
             try {
                 checkOpen();
-                // for UTF-8, single characters are encoded already
-                // obviously this doesn't work with surrogate pairs
-                // but that's fine
                 buffer.write(data);
             } finally {
                 stream.lock.unlock();
@@ -72,16 +89,101 @@ public class SseInputStream extends InputStream {
         }
 
         public void flush() {
+            stream.lock.lock();
             try {
-                stream.packets.put(buffer.toByteArray());
+                if (buffer.size() == 0) {
+                    return;
+                }
+                byte[] packet = buffer.toByteArray();
                 buffer.reset();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                // we shouldn't ever block here -- queue is infinite
-                throw new IllegalStateException(e);
+                if (!stream.closed) {
+                    stream.offer(packet);
+                }
+            } finally {
+                stream.unlockAndDrain();
+            }
+        }
+
+        /**
+         * Encodes an event and queues it, replacing the queued event with the
+         * same conflation key if there is one.
+         * 
+         * @param event
+         *            - the event to write
+         * @param conflationKey
+         *            - the key, or {@code null} to always queue the event
+         * @return the result of queueing the event
+         */
+        SseEmitResult writeEvent(ServerSentEvent event, @Nullable Object conflationKey) {
+            stream.lock.lock();
+            try {
+                if (stream.closed) {
+                    return SseEmitResult.CLOSED;
+                }
+                // the encoder's buffer is guarded by the lock
+                return enqueue(encoder.encode(event), conflationKey);
+            } finally {
+                stream.unlockAndDrain();
+            }
+        }
+
+        /**
+         * Queues an encoded packet as-is, after anything already written.
+         * The packet is not copied, and may be shared between streams.
+         * 
+         * @param packet
+         *            - the packet to queue
+         * @param conflationKey
+         *            - the key, or {@code null} to always queue the packet
+         * @return the result of queueing the packet
+         */
+        SseEmitResult writePacket(byte[] packet, @Nullable Object conflationKey) {
+            stream.lock.lock();
+            try {
+                if (stream.closed) {
+                    return SseEmitResult.CLOSED;
+                }
+                return enqueue(packet, conflationKey);
+            } finally {
+                stream.unlockAndDrain();
             }
         }
 
+        /**
+         * Queues a packet only if nothing is queued or partly written, for
+         * keep-alives. An empty queue always has room, so this never blocks
+         * or drops.
+         * 
+         * @param packet
+         *            - the packet to queue
+         * @return {@code false} if the stream is closed
+         */
+        boolean writeIfIdle(byte[] packet) {
+            stream.lock.lock();
+            try {
+                if (stream.closed) {
+                    return false;
+                }
+                if (buffer.size() == 0 && stream.queuedEvents.get() == 0) {
+                    stream.offer(packet);
+                }
+                return true;
+            } finally {
+                stream.unlockAndDrain();
+            }
+        }
+
+        private SseEmitResult enqueue(byte[] packet, @Nullable Object conflationKey) {
+            flush();
+            if (stream.closed) {
+                // flushing overflowed
+                return SseEmitResult.DISCONNECTED;
+            }
+            return conflationKey == null
+                    ? stream.offer(packet)
+                    : stream.offerConflated(conflationKey, packet);
+        }
+
         private void checkOpen() {
             checkState(!stream.closed, "closed");
         }
@@ -90,9 +192,9 @@ public class SseInputStream extends InputStream {
             stream.lock.lock();
             try {
                 flush();
-                stream.close();
+                stream.finish();
             } finally {
-                stream.lock.unlock();
+                stream.unlockAndDrain();
             }
         }
 
@@ -101,29 +203,371 @@ public class SseInputStream extends InputStream {
         }
 
         public void unlock() {
-            stream.lock.unlock();
+            stream.unlockAndDrain();
+        }
+
+    }
+
+    private static final Logger LOGGER = Logging.getLogger();
+
+    // queued after the last packet, so a blocked reader wakes up on close
+    private static final byte[] END = new byte[0];
+
+    /**
+     * Delivers packets to an {@link SseSink} as demand allows. Whichever
+     * thread makes progress possible drains the queue, and the work counter
+     * ensures only one thread calls the sink at a time.
+     */
+    private final class PushSubscription implements SseSubscription {
+
+        private final SseSink sink;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile boolean done;
+
+        PushSubscription(SseSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void request(long n) {
+            checkArgument(n > 0, "demand must be positive, got %s", n);
+            demand.accumulateAndGet(n, LongMath::saturatedAdd);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            close();
+        }
+
+        void drain() {
+            if (work.getAndIncrement() != 0) {
+                // the draining thread will loop again
+                return;
+            }
+            int missed = 1;
+            do {
+                while (!done) {
+                    // the end is delivered without demand
+                    if (demand.get() == 0 && packets.peek() != END) {
+                        break;
+                    }
+                    // polled, not peeked, as producers may drop the oldest
+                    Object next = packets.poll();
+                    if (next == null) {
+                        break;
+                    } else if (next == END) {
+                        done = true;
+                        deliver(null);
+                    } else {
+                        byte[] packet = dequeued(next);
+                        if (demand.get() != Long.MAX_VALUE) {
+                            demand.decrementAndGet();
+                        }
+                        deliver(packet);
+                    }
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliver(@Nullable byte[] packet) {
+            try {
+                if (packet == null) {
+                    sink.onClose();
+                } else {
+                    sink.onData(ByteBuffer.wrap(packet).asReadOnlyBuffer());
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("SSE sink failed, cancelling its subscription", e);
+                cancel();
+            }
         }
 
     }
 
-    private final BlockingQueue<byte[]> packets = new LinkedBlockingQueue<>();
+    /**
+     * A queued event that later events with the same key replace, until it is
+     * taken off the queue.
+     */
+    private static final class Conflated {
+
+        final Object key;
+        byte[] packet;
+
+        Conflated(Object key, byte[] packet) {
+            this.key = key;
+            this.packet = packet;
+        }
+
+    }
+
+    // holds packets, Conflated packets, and END
+    private final BlockingQueue<Object> packets = new LinkedBlockingQueue<>();
     private byte[] current;
     private int index;
+    // reader-only, set once END is taken
+    private boolean ended;
     private final SseOutput output = new SseOutput(this);
-    private final Lock lock = new ReentrantLock();
-    private boolean closed;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition roomAvailable = lock.newCondition();
+    private final SseQueueLimits limits;
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicInteger queuedEvents = new AtomicInteger();
+    // only changed holding the lock
+    private volatile int blockedProducers;
+    private volatile long lastQueuedNanos = System.nanoTime();
+    private volatile boolean closed;
+    @Nullable
+    private volatile PushSubscription subscription;
+    // guarded by the lock, created on first use
+    @Nullable
+    private Map<Object, Conflated> pendingByKey;
+
+    public SseInputStream() {
+        this(SseQueueLimits.UNBOUNDED);
+    }
+
+    public SseInputStream(SseQueueLimits limits) {
+        this.limits = checkNotNull(limits, "limits");
+    }
 
     public SseOutput getOutput() {
         return output;
     }
 
+    /**
+     * Delivers this stream to {@code sink} instead of reading it. The stream
+     * can't be read after subscribing, and only one sink may subscribe.
+     * 
+     * @param sink
+     *            - the sink to deliver to
+     * @return the subscription, which starts with no demand
+     */
+    public SseSubscription subscribe(SseSink sink) {
+        checkNotNull(sink, "sink");
+        lock.lock();
+        try {
+            checkState(subscription == null, "already subscribed");
+            PushSubscription subscription = new PushSubscription(sink);
+            this.subscription = subscription;
+            return subscription;
+        } finally {
+            // delivers the end right away if the stream is already closed
+            unlockAndDrain();
+        }
+    }
+
+    /**
+     * @return the encoded bytes queued and not yet taken by the consumer
+     */
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    /**
+     * @return the packets queued and not yet taken by the consumer
+     */
+    public int getQueuedEvents() {
+        return queuedEvents.get();
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} a packet was last queued at, or
+     *         the stream was created at
+     */
+    long getLastQueuedNanos() {
+        return lastQueuedNanos;
+    }
+
+    // called holding the lock, while open
+    private SseEmitResult offerConflated(Object key, byte[] packet) {
+        if (pendingByKey == null) {
+            pendingByKey = new HashMap<>();
+        }
+        Conflated pending = pendingByKey.get(key);
+        if (pending == null) {
+            Conflated conflated = new Conflated(key, packet);
+            SseEmitResult result = offer(conflated, packet.length);
+            if (result.isQueued()) {
+                // consumers claim it under the lock, so can't miss the mapping
+                pendingByKey.put(key, conflated);
+            }
+            return result;
+        }
+        int delta = packet.length - pending.packet.length;
+        SseEmitResult result = makeRoomFor(0, delta);
+        if (!result.isQueued()) {
+            return result;
+        }
+        if (pendingByKey.get(key) != pending) {
+            // taken or dropped while making room, so queue it anew
+            return offerConflated(key, packet);
+        }
+        pending.packet = packet;
+        lastQueuedNanos = System.nanoTime();
+        queuedBytes.addAndGet(delta);
+        SseMetrics.replaced(delta);
+        return result == SseEmitResult.QUEUED ? SseEmitResult.CONFLATED : result;
+    }
+
+    // called holding the lock, while open
+    private SseEmitResult offer(byte[] packet) {
+        return offer(packet, packet.length);
+    }
+
+    private SseEmitResult offer(Object element, int length) {
+        SseEmitResult result = makeRoomFor(1, length);
+        if (!result.isQueued()) {
+            return result;
+        }
+        lastQueuedNanos = System.nanoTime();
+        queuedBytes.addAndGet(length);
+        queuedEvents.incrementAndGet();
+        SseMetrics.queued(length);
+        packets.add(element);
+        return result;
+    }
+
+    /**
+     * Applies the overflow policy until the queue has room for the added
+     * events and bytes.
+     * 
+     * @return {@link SseEmitResult#QUEUED} or
+     *         {@link SseEmitResult#QUEUED_DROPPED_OLDEST} if there is room,
+     *         otherwise why there isn't
+     */
+    private SseEmitResult makeRoomFor(int events, long bytes) {
+        if (hasRoomFor(events, bytes)) {
+            return SseEmitResult.QUEUED;
+        }
+        switch (limits.getPolicy()) {
+            case DROP_OLDEST:
+                while (!hasRoomFor(events, bytes)) {
+                    Object oldest = packets.poll();
+                    if (oldest == null) {
+                        // the consumer took the rest
+                        break;
+                    }
+                    dequeued(oldest);
+                    SseMetrics.dropped();
+                }
+                return SseEmitResult.QUEUED_DROPPED_OLDEST;
+            case DROP_NEWEST:
+                SseMetrics.dropped();
+                return SseEmitResult.DROPPED;
+            case DISCONNECT:
+                LOGGER.debug("SSE consumer fell behind by {} events, disconnecting", queuedEvents.get());
+                close();
+                SseMetrics.disconnected();
+                return SseEmitResult.DISCONNECTED;
+            case BLOCK:
+                boolean room = awaitRoomFor(events, bytes);
+                if (closed) {
+                    return SseEmitResult.CLOSED;
+                }
+                if (!room) {
+                    SseMetrics.dropped();
+                    return SseEmitResult.DROPPED;
+                }
+                return SseEmitResult.QUEUED;
+            default:
+                throw new AssertionError("Unknown policy " + limits.getPolicy());
+        }
+    }
+
+    private boolean hasRoomFor(int events, long bytes) {
+        return limits.hasRoomFor(queuedEvents.get(), queuedBytes.get(), events, bytes);
+    }
+
+    private boolean awaitRoomFor(int events, long bytes) {
+        long nanos = limits.getBlockTimeout().toNanos();
+        // announced before checking, so consumers can't miss signalling us
+        blockedProducers++;
+        try {
+            while (!closed && !hasRoomFor(events, bytes)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                try {
+                    nanos = roomAvailable.awaitNanos(nanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            blockedProducers--;
+        }
+    }
+
+    // called for every element taken off the queue, except END
+    private byte[] dequeued(Object element) {
+        byte[] packet;
+        if (element instanceof Conflated) {
+            Conflated conflated = (Conflated) element;
+            lock.lock();
+            try {
+                // claimed, so later events with the key are queued anew
+                pendingByKey.remove(conflated.key, conflated);
+                packet = conflated.packet;
+            } finally {
+                lock.unlock();
+            }
+        } else {
+            packet = (byte[]) element;
+        }
+        queuedBytes.addAndGet(-packet.length);
+        queuedEvents.decrementAndGet();
+        SseMetrics.dequeued(packet.length);
+        if (blockedProducers > 0) {
+            lock.lock();
+            try {
+                roomAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return packet;
+    }
+
+    private void clearQueue() {
+        Object element;
+        while ((element = packets.poll()) != null) {
+            if (element != END) {
+                dequeued(element);
+            }
+        }
+    }
+
+    /**
+     * Releases the lock, then delivers queued packets to the subscriber once
+     * the lock is fully released, so sinks never run under the lock.
+     */
+    private void unlockAndDrain() {
+        lock.unlock();
+        if (!lock.isHeldByCurrentThread()) {
+            drainToSubscriber();
+        }
+    }
+
+    private void drainToSubscriber() {
+        PushSubscription subscription = this.subscription;
+        if (subscription != null) {
+            subscription.drain();
+        }
+    }
+
     @Override
     public int read() throws IOException {
         byte[] next = ensureDataAvailable(true);
         if (next == null) {
             return -1;
         }
-        int data = next[index];
+        int data = next[index] & 0xFF;
         index++;
         return data;
     }
@@ -149,33 +593,49 @@ public class SseInputStream extends InputStream {
         return numRead;
     }
 
+    /**
+     * Returns the packet being read, taking the next one if the current one
+     * is used up.
+     * 
+     * @param wait
+     *            - {@code true} to block until a packet arrives or the stream
+     *            ends
+     * @return the current packet, or {@code null} if the stream ended or
+     *         {@code wait} is {@code false} and nothing is queued
+     */
     private byte[] ensureDataAvailable(boolean wait) throws IOException {
-        if (current != null && index >= current.length) {
-            current = null;
-            index = 0;
+        if (subscription != null) {
+            throw new IOException("stream is delivered to a sink");
         }
-        while (current == null && morePacketsComing()) {
-            if (wait) {
-                try {
-                    current = packets.poll(1, TimeUnit.MILLISECONDS);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException(e);
-                }
-            } else {
-                current = packets.poll();
+        if (current != null && index < current.length) {
+            return current;
+        }
+        current = null;
+        index = 0;
+        if (ended) {
+            return null;
+        }
+        Object next;
+        if (wait) {
+            try {
+                next = packets.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        } else {
+            next = packets.poll();
+            if (next == null) {
+                return null;
             }
         }
-        return current;
-    }
-
-    private boolean morePacketsComing() {
-        lock.lock();
-        try {
-            return !closed || packets.size() > 0;
-        } finally {
-            lock.unlock();
+        if (next == END) {
+            ended = true;
+            return null;
         }
+        // flush never queues empty packets
+        current = dequeued(next);
+        return current;
     }
 
     @Override
@@ -189,21 +649,40 @@ public class SseInputStream extends InputStream {
     }
 
     public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Ends the stream after the packets already queued, for the producer.
+     */
+    void finish() {
         lock.lock();
         try {
-            return !closed;
+            if (!closed) {
+                closed = true;
+                packets.add(END);
+                // blocked producers give up
+                roomAvailable.signalAll();
+            }
         } finally {
-            lock.unlock();
+            unlockAndDrain();
         }
     }
 
+    /**
+     * Ends the stream for the consumer, dropping the packets it hasn't taken.
+     */
     @Override
     public void close() {
         lock.lock();
         try {
+            // also takes any earlier END, so exactly one is left
+            clearQueue();
             closed = true;
+            packets.add(END);
+            roomAvailable.signalAll();
         } finally {
-            lock.unlock();
+            unlockAndDrain();
         }
     }
 
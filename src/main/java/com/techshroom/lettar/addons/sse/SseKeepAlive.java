@@ -0,0 +1,223 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.techshroom.lettar.util.Logging;
+
+/**
+ * Sends a comment heartbeat to {@linkplain #register registered} emitters
+ * that haven't emitted anything for the interval, so proxies don't close
+ * idle connections. Closed emitters are dropped as they're found.
+ * 
+ * <p>
+ * Every emitter is checked from one thread, using a hashed timing wheel that
+ * spans the interval. Each tick only visits the emitters due in its slot, so
+ * the cost of a tick stays proportional to the emitters that could be idle,
+ * rather than all of them.
+ * </p>
+ */
+public final class SseKeepAlive implements AutoCloseable {
+
+    private static final Logger LOGGER = Logging.getLogger();
+
+    // an empty comment, which clients ignore
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setNameFormat("lettar-sse-keepalive-%d")
+            .setDaemon(true)
+            .build();
+
+    /**
+     * Creates a keep-alive service and starts its thread.
+     * 
+     * @param interval
+     *            - how long an emitter can be idle before a heartbeat is sent
+     * @return the keep-alive service
+     */
+    public static SseKeepAlive create(Duration interval) {
+        checkNotNull(interval, "interval");
+        checkArgument(interval.toMillis() >= WHEEL_SIZE, "interval must be at least %sms, got %s", WHEEL_SIZE, interval);
+        SseKeepAlive keepAlive = new SseKeepAlive(interval.toNanos());
+        keepAlive.thread.start();
+        return keepAlive;
+    }
+
+    private static final class Entry {
+
+        final BaseSseEmitter emitter;
+        // full turns of the wheel to wait before the entry is due
+        long rounds;
+
+        Entry(BaseSseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+    }
+
+    private final long intervalNanos;
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+    private final Queue<BaseSseEmitter> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    // the rest is only used by the thread
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private final List<Entry>[] wheel = new List[WHEEL_SIZE];
+    private List<Entry> spare = new ArrayList<>();
+    private long tick;
+
+    private SseKeepAlive(long intervalNanos) {
+        this.intervalNanos = intervalNanos;
+        this.tickNanos = intervalNanos / WHEEL_SIZE;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.thread = THREAD_FACTORY.newThread(this::run);
+    }
+
+    /**
+     * Starts sending heartbeats to an emitter, until it closes.
+     * 
+     * @param emitter
+     *            - the emitter to keep alive
+     */
+    public void register(BaseSseEmitter emitter) {
+        checkNotNull(emitter, "emitter");
+        checkState(!closed, "closed");
+        size.incrementAndGet();
+        pending.add(emitter);
+    }
+
+    /**
+     * @return the number of emitters being kept alive, including closed
+     *         emitters that haven't been found yet
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Stops sending heartbeats. Emitters are not closed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (!closed) {
+            long wait = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            tick++;
+            BaseSseEmitter emitter;
+            while ((emitter = pending.poll()) != null) {
+                schedule(new Entry(emitter), emitter.getLastEmitNanos() + intervalNanos);
+            }
+            expire((int) (tick & WHEEL_MASK));
+        }
+        LOGGER.debug("SSE keep-alive stopped with {} emitters", size.get());
+    }
+
+    private void expire(int slot) {
+        List<Entry> entries = wheel[slot];
+        if (entries.isEmpty()) {
+            return;
+        }
+        // swapped out, as entries can be scheduled back into this slot
+        wheel[slot] = spare;
+        long now = System.nanoTime();
+        for (Entry entry : entries) {
+            if (entry.rounds > 0) {
+                entry.rounds--;
+                wheel[slot].add(entry);
+                continue;
+            }
+            try {
+                visit(entry, now);
+            } catch (RuntimeException e) {
+                LOGGER.warn("SSE keep-alive failed, dropping emitter", e);
+                size.decrementAndGet();
+            }
+        }
+        entries.clear();
+        spare = entries;
+    }
+
+    private void visit(Entry entry, long now) {
+        BaseSseEmitter emitter = entry.emitter;
+        if (!emitter.isOpen()) {
+            size.decrementAndGet();
+            return;
+        }
+        long lastEmit = emitter.getLastEmitNanos();
+        if (now - lastEmit < intervalNanos) {
+            // emitted since it was scheduled
+            schedule(entry, lastEmit + intervalNanos);
+            return;
+        }
+        if (!emitter.emitKeepAlive(HEARTBEAT)) {
+            size.decrementAndGet();
+            return;
+        }
+        schedule(entry, now + intervalNanos);
+    }
+
+    private void schedule(Entry entry, long deadlineNanos) {
+        // round up, so heartbeats are never early, and never into the past
+        long ticks = Math.max(ceilDiv(deadlineNanos - startNanos, tickNanos), tick + 1);
+        entry.rounds = (ticks - tick - 1) / WHEEL_SIZE;
+        wheel[(int) (ticks & WHEEL_MASK)].add(entry);
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queue totals across every {@link SseInputStream} in the JVM. Per-emitter
+ * numbers are on {@link BaseSseEmitter}.
+ */
+public final class SseMetrics {
+
+    private static final LongAdder QUEUED_BYTES = new LongAdder();
+    private static final LongAdder QUEUED_EVENTS = new LongAdder();
+    private static final LongAdder DROPPED_EVENTS = new LongAdder();
+    private static final LongAdder DISCONNECTS = new LongAdder();
+
+    /**
+     * @return the encoded bytes queued and not yet taken by consumers
+     */
+    public static long getQueuedBytes() {
+        return QUEUED_BYTES.sum();
+    }
+
+    /**
+     * @return the events queued and not yet taken by consumers
+     */
+    public static long getQueuedEvents() {
+        return QUEUED_EVENTS.sum();
+    }
+
+    /**
+     * @return the events dropped because a queue was full
+     */
+    public static long getDroppedEvents() {
+        return DROPPED_EVENTS.sum();
+    }
+
+    /**
+     * @return the consumers disconnected because a queue was full
+     */
+    public static long getDisconnects() {
+        return DISCONNECTS.sum();
+    }
+
+    static void queued(int length) {
+        QUEUED_BYTES.add(length);
+        QUEUED_EVENTS.increment();
+    }
+
+    static void dequeued(int length) {
+        QUEUED_BYTES.add(-length);
+        QUEUED_EVENTS.decrement();
+    }
+
+    static void replaced(int delta) {
+        QUEUED_BYTES.add(delta);
+    }
+
+    static void dropped() {
+        DROPPED_EVENTS.increment();
+    }
+
+    static void disconnected() {
+        DISCONNECTS.increment();
+    }
+
+    private SseMetrics() {
+    }
+
+}
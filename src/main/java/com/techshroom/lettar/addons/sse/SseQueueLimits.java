@@ -0,0 +1,113 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Duration;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Caps on the events an emitter queues for a consumer that isn't reading
+ * them yet, and what to do past the caps. An event is always accepted into
+ * an empty queue, even if it is larger than the byte cap.
+ */
+@AutoValue
+public abstract class SseQueueLimits {
+
+    /**
+     * No caps, the limits of emitters created without any. Slow consumers
+     * queue every event, as they did before limits existed.
+     */
+    public static final SseQueueLimits UNBOUNDED = of(Integer.MAX_VALUE, Long.MAX_VALUE, SseOverflowPolicy.DISCONNECT);
+
+    /**
+     * Creates limits with a policy that doesn't block.
+     * 
+     * @param maxEvents
+     *            - the most events to queue
+     * @param maxBytes
+     *            - the most encoded bytes to queue
+     * @param policy
+     *            - the policy for events past the limits
+     * @return the limits
+     */
+    public static SseQueueLimits of(int maxEvents, long maxBytes, SseOverflowPolicy policy) {
+        checkNotNull(policy, "policy");
+        checkArgument(policy != SseOverflowPolicy.BLOCK, "use blocking(...) for the BLOCK policy");
+        return create(maxEvents, maxBytes, policy, Duration.ZERO);
+    }
+
+    /**
+     * Creates limits that block emitting threads for up to {@code timeout},
+     * then drop the event.
+     * 
+     * @param maxEvents
+     *            - the most events to queue
+     * @param maxBytes
+     *            - the most encoded bytes to queue
+     * @param timeout
+     *            - the longest to wait for room
+     * @return the limits
+     */
+    public static SseQueueLimits blocking(int maxEvents, long maxBytes, Duration timeout) {
+        checkNotNull(timeout, "timeout");
+        checkArgument(!timeout.isNegative(), "timeout must not be negative, got %s", timeout);
+        return create(maxEvents, maxBytes, SseOverflowPolicy.BLOCK, timeout);
+    }
+
+    private static SseQueueLimits create(int maxEvents, long maxBytes, SseOverflowPolicy policy, Duration timeout) {
+        checkArgument(maxEvents > 0, "maxEvents must be positive, got %s", maxEvents);
+        checkArgument(maxBytes > 0, "maxBytes must be positive, got %s", maxBytes);
+        return new AutoValue_SseQueueLimits(maxEvents, maxBytes, policy, timeout);
+    }
+
+    SseQueueLimits() {
+    }
+
+    public abstract int getMaxEvents();
+
+    public abstract long getMaxBytes();
+
+    public abstract SseOverflowPolicy getPolicy();
+
+    /**
+     * @return how long {@link SseOverflowPolicy#BLOCK} waits for room, zero
+     *         for other policies
+     */
+    public abstract Duration getBlockTimeout();
+
+    boolean hasRoomFor(int queuedEvents, long queuedBytes, int addedEvents, long addedBytes) {
+        if (queuedEvents + addedEvents <= 1) {
+            // a lone event always fits
+            return true;
+        }
+        // widened and compared by subtraction, so unbounded limits don't overflow
+        return (long) queuedEvents + addedEvents <= getMaxEvents() && queuedBytes <= getMaxBytes() - addedBytes;
+    }
+
+}
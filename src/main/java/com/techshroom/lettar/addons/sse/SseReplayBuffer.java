@@ -0,0 +1,101 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import javax.annotation.Nullable;
+
+/**
+ * A fixed-size ring of the latest events sent on a stream, kept encoded, so
+ * reconnecting clients can be sent what they missed since their
+ * {@code Last-Event-ID}. Not thread-safe; {@link SseBroadcaster} guards it.
+ */
+final class SseReplayBuffer {
+
+    private final ServerSentEvent[] events;
+    private final byte[][] packets;
+    // sequence number of the latest event with each ID still in the ring
+    private final Map<String, Long> sequenceById = new HashMap<>();
+    // sequence number of the next event, and the ring index is seq % length
+    private long nextSequence;
+
+    SseReplayBuffer(int capacity) {
+        checkArgument(capacity > 0, "capacity must be positive, got %s", capacity);
+        this.events = new ServerSentEvent[capacity];
+        this.packets = new byte[capacity][];
+    }
+
+    void record(ServerSentEvent event, byte[] packet) {
+        int index = index(nextSequence);
+        ServerSentEvent evicted = events[index];
+        if (evicted != null && evicted.getId().isPresent()) {
+            long evictedSequence = nextSequence - events.length;
+            sequenceById.remove(evicted.getId().get(), evictedSequence);
+        }
+        events[index] = event;
+        packets[index] = packet;
+        if (event.getId().isPresent()) {
+            sequenceById.put(event.getId().get(), nextSequence);
+        }
+        nextSequence++;
+    }
+
+    /**
+     * Passes every event after the one with ID {@code lastEventId} to
+     * {@code consumer}, oldest first.
+     * 
+     * @param lastEventId
+     *            - the ID of the last event the client saw
+     * @param consumer
+     *            - receives each missed event and its encoding
+     * @return {@code false} if the ID isn't in the ring, and nothing was
+     *         replayed
+     */
+    boolean replayAfter(@Nullable String lastEventId, BiConsumer<ServerSentEvent, byte[]> consumer) {
+        Long sequence = lastEventId == null ? null : sequenceById.get(lastEventId);
+        if (sequence == null) {
+            return false;
+        }
+        for (long seq = sequence + 1; seq < nextSequence; seq++) {
+            int index = index(seq);
+            consumer.accept(events[index], packets[index]);
+        }
+        return true;
+    }
+
+    int size() {
+        return (int) Math.min(nextSequence, events.length);
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % events.length);
+    }
+
+}
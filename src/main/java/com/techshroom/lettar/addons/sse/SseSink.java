@@ -0,0 +1,59 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.addons.sse;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Non-blocking receiver for the encoded bytes of an SSE stream, as an
+ * alternative to reading the blocking {@link SseInputStream}. Subscribe with
+ * {@link SseEmitter#subscribe(SseSink)}.
+ * 
+ * <p>
+ * Callbacks are made on whichever thread makes data available: the thread
+ * emitting an event, closing the emitter, or calling
+ * {@link SseSubscription#request(long)}. They are never made concurrently,
+ * and should not block.
+ * </p>
+ */
+public interface SseSink {
+
+    /**
+     * Called with the next chunk of the stream, at most once per unit of
+     * {@linkplain SseSubscription#request(long) requested} demand. Each chunk
+     * holds one or more complete events.
+     * 
+     * @param data
+     *            - the chunk, read-only
+     */
+    void onData(ByteBuffer data);
+
+    /**
+     * Called once the emitter is closed and all data was delivered. This does
+     * not need demand.
+     */
+    void onClose();
+
+}
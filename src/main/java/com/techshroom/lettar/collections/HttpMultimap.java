@@ -24,15 +24,19 @@
  */
 package com.techshroom.lettar.collections;
 
-import com.google.auto.value.AutoValue;
+import com.google.common.base.Ascii;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimaps;
 import com.techshroom.lettar.util.HttpUtil;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -40,20 +44,35 @@ import java.util.function.UnaryOperator;
 
 /**
  * HTTP case-insensitive multiple value map.
+ *
+ * <p>
+ * Stored as flat arrays of names and values, sorted case-insensitively, with
+ * a precomputed lowercase hash per name. Header sets are small, so lookups
+ * scan the hashes instead of walking a tree. Use {@link #toBuilder()} to make
+ * several changes with a single copy.
+ * </p>
  */
-@AutoValue
-public abstract class HttpMultimap {
+public final class HttpMultimap {
+
+    private static final Comparator<String> ORDER = String.CASE_INSENSITIVE_ORDER;
+    // above this, lookups binary search instead of scanning
+    private static final int LINEAR_SCAN_LIMIT = 8;
+    private static final HttpMultimap EMPTY = new HttpMultimap(new String[0], new int[0], new Object[0]);
 
     public static HttpMultimap of() {
-        return wrap(ImmutableSortedMap.of());
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
     }
 
     public static HttpMultimap copyOfSingle(Map<String, String> map) {
-        ImmutableSortedMap.Builder<String, ImmutableList<String>> copy = HttpUtil.headerMapBuilder();
+        Builder copy = builder();
         for (Map.Entry<String, String> header : map.entrySet()) {
-            copy.put(header.getKey(), ImmutableList.of(header.getValue()));
+            copy.set(header.getKey(), header.getValue());
         }
-        return wrap(copy.build());
+        return copy.build();
     }
 
     public static HttpMultimap copyOf(ListMultimap<String, String> map) {
@@ -61,34 +80,169 @@ public abstract class HttpMultimap {
     }
 
     public static HttpMultimap copyOf(Map<String, ? extends List<String>> map) {
-        if (map instanceof ImmutableSortedMap) {
-            @SuppressWarnings("unchecked")
-            ImmutableSortedMap<String, ? extends List<String>> ism = (ImmutableSortedMap<String, ? extends List<String>>) map;
-            if (ism.comparator() == String.CASE_INSENSITIVE_ORDER
-                && ism.values().stream().allMatch(v -> v instanceof ImmutableList)) {
-                // already validated for immutable. pass to wrap
-                @SuppressWarnings("unchecked")
-                ImmutableSortedMap<String, ImmutableList<String>> ismIl = (ImmutableSortedMap<String, ImmutableList<String>>) ism;
-                return wrap(ismIl);
-            }
-        }
-        ImmutableSortedMap.Builder<String, ImmutableList<String>> copy = HttpUtil.headerMapBuilder();
+        Builder copy = builder();
         for (Map.Entry<String, ? extends List<String>> header : map.entrySet()) {
             if (header.getValue().size() > 0) {
                 copy.put(header.getKey(), ImmutableList.copyOf(header.getValue()));
             }
         }
-        return wrap(copy.build());
+        return copy.build();
+    }
+
+    /**
+     * Batches changes to a {@link HttpMultimap}, copying once on
+     * {@link #build()}.
+     */
+    public static final class Builder {
+
+        private final List<String> names;
+        private final List<ImmutableList<String>> values;
+
+        private Builder() {
+            this.names = new ArrayList<>();
+            this.values = new ArrayList<>();
+        }
+
+        private Builder(HttpMultimap original) {
+            int size = original.names.length;
+            this.names = new ArrayList<>(size + 2);
+            this.values = new ArrayList<>(size + 2);
+            for (int i = 0; i < size; i++) {
+                names.add(original.names[i]);
+                values.add(original.valueAt(i));
+            }
+        }
+
+        private int indexOf(String key) {
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i).equalsIgnoreCase(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private Builder put(String key, ImmutableList<String> value) {
+            int index = indexOf(key);
+            if (index == -1) {
+                names.add(key);
+                values.add(value);
+            } else {
+                names.set(index, key);
+                values.set(index, value);
+            }
+            return this;
+        }
+
+        public Builder add(String key, String value) {
+            int index = indexOf(key);
+            if (index == -1) {
+                return put(key, ImmutableList.of(value));
+            }
+            return put(key, ImmutableList.<String>builder()
+                .addAll(values.get(index))
+                .add(value)
+                .build());
+        }
+
+        public Builder set(String key, String value) {
+            return put(key, ImmutableList.of(value));
+        }
+
+        public Builder setIfAbsent(String key, String value) {
+            if (indexOf(key) == -1) {
+                return set(key, value);
+            }
+            return this;
+        }
+
+        public Builder remove(String key) {
+            int index = indexOf(key);
+            if (index != -1) {
+                names.remove(index);
+                values.remove(index);
+            }
+            return this;
+        }
+
+        public HttpMultimap build() {
+            int size = names.size();
+            if (size == 0) {
+                return EMPTY;
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> ORDER.compare(names.get(a), names.get(b)));
+            String[] sortedNames = new String[size];
+            int[] hashes = new int[size];
+            Object[] sortedValues = new Object[size];
+            for (int i = 0; i < size; i++) {
+                sortedNames[i] = names.get(order[i]);
+                hashes[i] = lowerCaseHash(sortedNames[i]);
+                sortedValues[i] = values.get(order[i]);
+            }
+            return new HttpMultimap(sortedNames, hashes, sortedValues);
+        }
+
+    }
+
+    private static int lowerCaseHash(String name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            hash = 31 * hash + Ascii.toLowerCase(name.charAt(i));
+        }
+        return hash;
+    }
+
+    private final String[] names;
+    private final int[] hashes;
+    // ImmutableList<String>[]
+    private final Object[] values;
+    @Nullable
+    private ImmutableSortedMap<String, ImmutableList<String>> sortedMap;
+
+    private HttpMultimap(String[] names, int[] hashes, Object[] values) {
+        this.names = names;
+        this.hashes = hashes;
+        this.values = values;
     }
 
-    private static HttpMultimap wrap(ImmutableSortedMap<String, ImmutableList<String>> map) {
-        return new AutoValue_HttpMultimap(map);
+    @SuppressWarnings("unchecked")
+    private ImmutableList<String> valueAt(int index) {
+        return (ImmutableList<String>) values[index];
     }
 
-    HttpMultimap() {
+    private int indexOf(String key) {
+        if (names.length <= LINEAR_SCAN_LIMIT) {
+            int hash = lowerCaseHash(key);
+            for (int i = 0; i < names.length; i++) {
+                if (hashes[i] == hash && names[i].equalsIgnoreCase(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int index = Arrays.binarySearch(names, key, ORDER);
+        return index < 0 ? -1 : index;
     }
 
-    abstract ImmutableSortedMap<String, ImmutableList<String>> getMultimap();
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    private ImmutableSortedMap<String, ImmutableList<String>> getMultimap() {
+        ImmutableSortedMap<String, ImmutableList<String>> map = sortedMap;
+        if (map == null) {
+            ImmutableSortedMap.Builder<String, ImmutableList<String>> builder = HttpUtil.headerMapBuilder();
+            for (int i = 0; i < names.length; i++) {
+                builder.put(names[i], valueAt(i));
+            }
+            sortedMap = map = builder.build();
+        }
+        return map;
+    }
 
     public Optional<String> getSingleValue(String key) {
         String value = getSingleValueOrDefault(key, null);
@@ -96,7 +250,12 @@ public abstract class HttpMultimap {
     }
 
     public String getSingleValueOrDefault(String key, String defaultValue) {
-        return Iterables.getFirst(getMultimap().getOrDefault(key, ImmutableList.of()), defaultValue);
+        int index = indexOf(key);
+        if (index == -1) {
+            return defaultValue;
+        }
+        ImmutableList<String> value = valueAt(index);
+        return value.isEmpty() ? defaultValue : value.get(0);
     }
 
     public HttpMultimap transform(UnaryOperator<ImmutableSortedMap<String, ImmutableList<String>>> change) {
@@ -107,46 +266,128 @@ public abstract class HttpMultimap {
         return copyOf(newList);
     }
 
-    private HttpMultimap changeKey(String key, UnaryOperator<ImmutableList<String>> change) {
-        ImmutableSortedMap.Builder<String, ImmutableList<String>> headers = HttpUtil.headerMapBuilder();
-        getMultimap().forEach((k, v) -> {
-            if (!k.equalsIgnoreCase(key)) {
-                headers.put(k, v);
+    private HttpMultimap withValue(String key, ImmutableList<String> value) {
+        int index = indexOf(key);
+        if (index != -1) {
+            // the position and hash stay the same, only the name's case may change
+            String[] newNames = names;
+            if (!names[index].equals(key)) {
+                newNames = names.clone();
+                newNames[index] = key;
             }
-        });
-        ImmutableList<String> newValue = change.apply(getMultimap().get(key));
-        if (newValue != null) {
-            headers.put(key, newValue);
+            Object[] newValues = values.clone();
+            newValues[index] = value;
+            return new HttpMultimap(newNames, hashes, newValues);
         }
-        return wrap(headers.build());
+        int insert = -(Arrays.binarySearch(names, key, ORDER) + 1);
+        int size = names.length;
+        String[] newNames = new String[size + 1];
+        int[] newHashes = new int[size + 1];
+        Object[] newValues = new Object[size + 1];
+        System.arraycopy(names, 0, newNames, 0, insert);
+        System.arraycopy(hashes, 0, newHashes, 0, insert);
+        System.arraycopy(values, 0, newValues, 0, insert);
+        newNames[insert] = key;
+        newHashes[insert] = lowerCaseHash(key);
+        newValues[insert] = value;
+        System.arraycopy(names, insert, newNames, insert + 1, size - insert);
+        System.arraycopy(hashes, insert, newHashes, insert + 1, size - insert);
+        System.arraycopy(values, insert, newValues, insert + 1, size - insert);
+        return new HttpMultimap(newNames, newHashes, newValues);
     }
 
     public HttpMultimap add(String key, String value) {
-        return changeKey(key, v -> v == null
+        int index = indexOf(key);
+        return withValue(key, index == -1
             ? ImmutableList.of(value)
             : ImmutableList.<String>builder()
-            .addAll(v)
+            .addAll(valueAt(index))
             .add(value)
             .build());
     }
 
     public HttpMultimap set(String key, String value) {
-        return changeKey(key, v -> ImmutableList.of(value));
+        return withValue(key, ImmutableList.of(value));
     }
 
     public HttpMultimap setIfAbsent(String key, String value) {
-        if (getMultimap().containsKey(key)) {
+        if (indexOf(key) != -1) {
             return this;
         }
         return set(key, value);
     }
 
     public HttpMultimap remove(String key) {
-        return changeKey(key, v -> null);
+        int index = indexOf(key);
+        if (index == -1) {
+            return this;
+        }
+        int size = names.length - 1;
+        if (size == 0) {
+            return EMPTY;
+        }
+        String[] newNames = new String[size];
+        int[] newHashes = new int[size];
+        Object[] newValues = new Object[size];
+        System.arraycopy(names, 0, newNames, 0, index);
+        System.arraycopy(hashes, 0, newHashes, 0, index);
+        System.arraycopy(values, 0, newValues, 0, index);
+        System.arraycopy(names, index + 1, newNames, index, size - index);
+        System.arraycopy(hashes, index + 1, newHashes, index, size - index);
+        System.arraycopy(values, index + 1, newValues, index, size - index);
+        return new HttpMultimap(newNames, newHashes, newValues);
     }
 
     public ImmutableSet<Map.Entry<String, ImmutableList<String>>> entrySet() {
-        return getMultimap().entrySet();
+        ImmutableSet.Builder<Map.Entry<String, ImmutableList<String>>> entries = ImmutableSet.builder();
+        for (int i = 0; i < names.length; i++) {
+            entries.add(Maps.immutableEntry(names[i], valueAt(i)));
+        }
+        return entries.build();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof HttpMultimap)) {
+            return false;
+        }
+        HttpMultimap other = (HttpMultimap) obj;
+        if (names.length != other.names.length) {
+            return false;
+        }
+        // both are sorted by the same case-insensitive order
+        for (int i = 0; i < names.length; i++) {
+            if (hashes[i] != other.hashes[i]
+                || !names[i].equalsIgnoreCase(other.names[i])
+                || !values[i].equals(other.values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < names.length; i++) {
+            hash = 31 * hash + (hashes[i] ^ values[i].hashCode());
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("HttpMultimap{multimap={");
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                b.append(", ");
+            }
+            b.append(names[i]).append('=').append(values[i]);
+        }
+        return b.append("}}").toString();
     }
 
 }
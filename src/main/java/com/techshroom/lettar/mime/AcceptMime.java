@@ -26,10 +26,12 @@ package com.techshroom.lettar.mime;
 
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.base.Splitter;
 import com.google.common.base.Splitter.MapSplitter;
+import com.google.common.collect.ImmutableList;
 
 @AutoValue
 public abstract class AcceptMime implements Comparable<AcceptMime> {
@@ -39,6 +41,62 @@ public abstract class AcceptMime implements Comparable<AcceptMime> {
     // there should only be a handful of parameters
     private static final MapSplitter MIME_Q_SPLIT = Splitter.on(';').limit(50).trimResults().withKeyValueSeparator('=');
 
+    // Limit number of splits to prevent attacks -- there shouldn't be this many
+    private static final Splitter ACCEPT_SPLITTER = Splitter.on(',').limit(50);
+    // headers longer than this are parsed every time, so they can't fill the cache
+    private static final int MAX_CACHED_HEADER_LENGTH = 1024;
+    // browsers only send a handful of distinct Accept headers. a header
+    // replaces whatever is in its slot, so lookups never lock or allocate.
+    // must be a power of two
+    private static final int HEADER_CACHE_SIZE = 64;
+    private static final AtomicReferenceArray<CachedHeader> HEADER_CACHE =
+            new AtomicReferenceArray<>(HEADER_CACHE_SIZE);
+
+    private static final class CachedHeader {
+
+        private final String header;
+        private final ImmutableList<MimeType> types;
+
+        CachedHeader(String header, ImmutableList<MimeType> types) {
+            this.header = header;
+            this.types = types;
+        }
+
+    }
+
+    /**
+     * Parses an {@code Accept} header into its MIME types, most preferred
+     * first. Results are cached by the raw header value.
+     * 
+     * @param acceptHeader
+     *            - the header value
+     * @return the accepted MIME types, in order of preference
+     */
+    public static ImmutableList<MimeType> parseHeader(String acceptHeader) {
+        if (acceptHeader.length() > MAX_CACHED_HEADER_LENGTH) {
+            return parseHeaderUncached(acceptHeader);
+        }
+        int hash = acceptHeader.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (HEADER_CACHE_SIZE - 1);
+        CachedHeader cached = HEADER_CACHE.get(slot);
+        if (cached != null && cached.header.equals(acceptHeader)) {
+            return cached.types;
+        }
+        ImmutableList<MimeType> types = parseHeaderUncached(acceptHeader);
+        HEADER_CACHE.set(slot, new CachedHeader(acceptHeader, types));
+        return types;
+    }
+
+    private static ImmutableList<MimeType> parseHeaderUncached(String acceptHeader) {
+        return ImmutableList.copyOf(
+            ImmutableList.copyOf(ACCEPT_SPLITTER.split(acceptHeader)).stream()
+                .map(AcceptMime::parse)
+                .sorted()
+                .map(AcceptMime::getMimeType)
+                .iterator()
+        );
+    }
+
     public static AcceptMime parse(String mimePlusQuality) {
         List<String> parts = SEMICOLON.splitToList(mimePlusQuality);
         MimeType mime = MimeType.parse(parts.get(0));
@@ -73,8 +131,9 @@ public abstract class AcceptMime implements Comparable<AcceptMime> {
         return 0;
     }
 
+    // RFC 7231: higher quality first, then more specific types first
     private static final Comparator<AcceptMime> COMP_DELEGATE = Comparator
-            .<AcceptMime> comparingDouble(AcceptMime::getQuality)
+            .<AcceptMime> comparingDouble(am -> -am.getQuality())
             .thenComparing(am -> am.getMimeType().getPrimaryType(), AcceptMime::starCompare)
             .thenComparing(am -> am.getMimeType().getSecondaryType(), AcceptMime::starCompare);
 
@@ -25,47 +25,91 @@
 package com.techshroom.lettar.mime;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.base.Preconditions.checkState;
-
-import java.util.Iterator;
 
 import com.google.auto.value.AutoValue;
-import com.google.common.base.Splitter;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 
 /**
  * Simplified representation of a MIME type. Supports <code>*&#47;*</code>, for
- * the {@code Accept} header.
+ * the {@code Accept} header. Types are normalized to lowercase.
  */
 @AutoValue
 public abstract class MimeType {
 
-    // cache of instance -> instance, uses key to set value to indicate cached
-    // otherwise the key gets thrown away, so it takes no space :)
-    private static final LoadingCache<MimeType, MimeType> MIME_CACHE = CacheBuilder.newBuilder()
-            .maximumSize(50)
-            .build(CacheLoader.from(k -> k));
-
-    private static final Splitter SLASH = Splitter.on('/').limit(2);
+    // well-known types are pinned, so client-sent types never replace them
+    private static final MimeTypeInterner INTERNER = new MimeTypeInterner(
+            "*/*",
+            "text/*",
+            "text/plain",
+            "text/html",
+            "text/css",
+            "text/csv",
+            "text/javascript",
+            "text/event-stream",
+            "application/*",
+            "application/json",
+            "application/xml",
+            "application/xhtml+xml",
+            "application/javascript",
+            "application/octet-stream",
+            "application/x-www-form-urlencoded",
+            "multipart/form-data",
+            "image/*",
+            "image/png",
+            "image/jpeg",
+            "image/gif",
+            "image/webp",
+            "image/svg+xml");
 
     public static MimeType parse(String mimeType) {
         checkArgument(!mimeType.isEmpty(), "MIME type cannot be empty");
         // very loose mime definition
         // we don't really need strictness
-        Iterator<String> parts = SLASH.split(mimeType).iterator();
-        checkState(parts.hasNext(), "not even one part? broken Splitter?");
-        String primary = parts.next();
-        String secondary = parts.hasNext() ? parts.next() : "*";
-        if (primary.equals("*")) {
-            checkArgument(secondary.equals("*"), "only */* is allowed, not */%s", secondary);
+        int slash = mimeType.indexOf('/');
+        if (slash == -1) {
+            return INTERNER.intern(mimeType, 0, mimeType.length(), "*", 0, 1);
+        }
+        if (slash == 1 && mimeType.charAt(0) == '*') {
+            checkArgument(mimeType.equals("*/*"), "only */* is allowed, not %s", mimeType);
         }
-        return of(primary, secondary);
+        return INTERNER.intern(mimeType, 0, slash, mimeType, slash + 1, mimeType.length());
     }
 
     public static MimeType of(String primary, String secondary) {
-        return MIME_CACHE.getUnchecked(new AutoValue_MimeType(primary, secondary));
+        return INTERNER.intern(primary, 0, primary.length(), secondary, 0, secondary.length());
+    }
+
+    /**
+     * Statistics about interned MIME types, for monitoring.
+     */
+    @AutoValue
+    public abstract static class InternStats {
+
+        InternStats() {
+        }
+
+        /**
+         * @return the number of interned types, including the well-known
+         *         types
+         */
+        public abstract int getSize();
+
+        public abstract long getHitCount();
+
+        public abstract long getMissCount();
+
+        /**
+         * @return the ratio of lookups that found an interned type, or
+         *         {@code 1} if there were no lookups
+         */
+        public final double getHitRate() {
+            long total = getHitCount() + getMissCount();
+            return total == 0 ? 1 : (double) getHitCount() / total;
+        }
+
+    }
+
+    public static InternStats getInternStats() {
+        return new AutoValue_MimeType_InternStats(INTERNER.size(), INTERNER.hitCount(), INTERNER.missCount());
     }
 
     MimeType() {
@@ -88,11 +132,11 @@ public abstract class MimeType {
             // matches all
             return true;
         }
-        if (!mimeType.getPrimaryType().equalsIgnoreCase(getPrimaryType())) {
+        if (!mimeType.getPrimaryType().equals(getPrimaryType())) {
             return false;
         }
         String mtSec = mimeType.getSecondaryType();
-        return mtSec.equals("*") || mtSec.equalsIgnoreCase(getSecondaryType());
+        return mtSec.equals("*") || mtSec.equals(getSecondaryType());
     }
     
     public final boolean isWildcard() {
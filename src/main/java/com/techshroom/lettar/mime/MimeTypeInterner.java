@@ -0,0 +1,147 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.mime;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Ascii;
+
+/**
+ * Lock-free intern table for {@link MimeType}. Lookups hash the type
+ * case-insensitively straight from the source strings, so a hit allocates
+ * nothing. The table has a fixed capacity. Once a probe sequence is full, a
+ * new type replaces a random entry in it, so types sent once by clients
+ * can't fill the table for good, and types in use are re-interned the next
+ * time they are looked up. The well-known types given to the constructor are
+ * pinned and never replaced.
+ */
+final class MimeTypeInterner {
+
+    // must be a power of two
+    private static final int CAPACITY = 1024;
+    private static final int MAX_PROBES = 16;
+
+    private final AtomicReferenceArray<MimeType> table = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // only written by the constructor
+    private final boolean[] pinned = new boolean[CAPACITY];
+
+    /**
+     * @param wellKnown
+     *            - types to intern up front and never replace, as
+     *            {@code primary/secondary}
+     */
+    MimeTypeInterner(String... wellKnown) {
+        for (String type : wellKnown) {
+            int slash = type.indexOf('/');
+            MimeType interned = intern(type, 0, slash, type, slash + 1, type.length());
+            for (int slot = 0; slot < CAPACITY; slot++) {
+                if (table.get(slot) == interned) {
+                    pinned[slot] = true;
+                }
+            }
+        }
+    }
+
+    MimeType intern(String primary, int primaryStart, int primaryEnd,
+            String secondary, int secondaryStart, int secondaryEnd) {
+        int hash = hash(primary, primaryStart, primaryEnd, 0);
+        hash = hash(secondary, secondaryStart, secondaryEnd, hash * 31 + '/');
+        hash ^= hash >>> 16;
+        MimeType created = null;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (hash + probe) & (CAPACITY - 1);
+            MimeType existing = table.get(slot);
+            while (existing == null) {
+                if (created == null) {
+                    created = create(primary, primaryStart, primaryEnd, secondary, secondaryStart, secondaryEnd);
+                }
+                if (table.compareAndSet(slot, null, created)) {
+                    size.incrementAndGet();
+                    misses.increment();
+                    return created;
+                }
+                // lost the race, the winner may be the same type
+                existing = table.get(slot);
+            }
+            if (matches(existing.getPrimaryType(), primary, primaryStart, primaryEnd)
+                    && matches(existing.getSecondaryType(), secondary, secondaryStart, secondaryEnd)) {
+                hits.increment();
+                return existing;
+            }
+        }
+        // table region is full, replace an unpinned entry in it
+        misses.increment();
+        if (created == null) {
+            created = create(primary, primaryStart, primaryEnd, secondary, secondaryStart, secondaryEnd);
+        }
+        int victim = ThreadLocalRandom.current().nextInt(MAX_PROBES);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (hash + victim + probe) & (CAPACITY - 1);
+            if (!pinned[slot]) {
+                table.set(slot, created);
+                break;
+            }
+        }
+        return created;
+    }
+
+    private static int hash(String s, int start, int end, int hash) {
+        for (int i = start; i < end; i++) {
+            hash = hash * 31 + Ascii.toLowerCase(s.charAt(i));
+        }
+        return hash;
+    }
+
+    private static boolean matches(String interned, String s, int start, int end) {
+        int length = end - start;
+        return interned.length() == length && interned.regionMatches(true, 0, s, start, length);
+    }
+
+    private static MimeType create(String primary, int primaryStart, int primaryEnd,
+            String secondary, int secondaryStart, int secondaryEnd) {
+        return new AutoValue_MimeType(
+                Ascii.toLowerCase(primary.substring(primaryStart, primaryEnd)),
+                Ascii.toLowerCase(secondary.substring(secondaryStart, secondaryEnd)));
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long missCount() {
+        return misses.sum();
+    }
+
+}
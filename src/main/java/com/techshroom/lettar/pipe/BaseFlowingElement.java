@@ -24,78 +24,107 @@
  */
 package com.techshroom.lettar.pipe;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.Arrays;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
-import com.google.common.base.Joiner;
-import com.google.common.base.Joiner.MapJoiner;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Maps;
-
+/**
+ * Flowing element backed by an array indexed by {@link Key#getIndex()}. The
+ * array is never modified after construction, changes copy it.
+ */
 public abstract class BaseFlowingElement<SELF extends FlowingElement<SELF>> implements FlowingElement<SELF> {
 
     public static class BFEBuilder<SELF extends FlowingElement<SELF>> implements FlowingElement.Builder<SELF> {
 
-        private final Map<String, Optional<Object>> map;
-        private final Function<ImmutableMap<String, Optional<Object>>, SELF> constructFunction;
+        private Object[] values;
+        private boolean copied;
+        private final Function<Object[], SELF> constructFunction;
+
+        public BFEBuilder(Function<Object[], SELF> constructFunction) {
+            // sized for every key known so far, so puts rarely need to grow
+            this.values = new Object[KeyIndex.size()];
+            this.copied = true;
+            this.constructFunction = constructFunction;
+        }
 
-        public BFEBuilder(Map<String, Optional<Object>> original, Function<ImmutableMap<String, Optional<Object>>, SELF> constructFunction) {
-            this.map = new HashMap<>(original);
+        public BFEBuilder(Object[] original, Function<Object[], SELF> constructFunction) {
+            this.values = original;
             this.constructFunction = constructFunction;
         }
 
         @Override
         public <V> Builder<SELF> put(Key<V> key, V value) {
-            map.put(key.getId(), Optional.ofNullable(value));
+            int index = key.getIndex();
+            if (!copied) {
+                values = Arrays.copyOf(values, Math.max(values.length, index + 1));
+                copied = true;
+            } else if (index >= values.length) {
+                values = Arrays.copyOf(values, index + 1);
+            }
+            values[index] = value;
             return this;
         }
 
         @Override
         public SELF build() {
-            return constructFunction.apply(ImmutableMap.copyOf(map));
+            // hand off the array, further puts must copy again
+            copied = false;
+            return constructFunction.apply(values);
         }
 
     }
 
-    private final ImmutableMap<String, Optional<Object>> map;
+    private final Object[] values;
 
-    public BaseFlowingElement(ImmutableMap<String, Optional<Object>> map) {
-        this.map = map;
+    public BaseFlowingElement(Object[] values) {
+        this.values = values;
     }
 
     @Override
     public <V> V get(Key<V> key) {
-        Optional<Object> opt = map.get(key.getId());
-        if (opt == null || !opt.isPresent()) {
+        int index = key.getIndex();
+        if (index >= values.length) {
             return null;
         }
         @SuppressWarnings("unchecked")
-        V value = (V) opt.get();
+        V value = (V) values[index];
         return value;
     }
 
-    protected abstract Function<ImmutableMap<String, Optional<Object>>, SELF> constructFunction();
+    protected abstract Function<Object[], SELF> constructFunction();
 
     @Override
     public Builder<SELF> toBuilder() {
-        return new BFEBuilder<>(map, constructFunction());
+        return new BFEBuilder<>(values, constructFunction());
     }
 
-    private static final MapJoiner MAP_JOINER = Joiner.on(',')
-            .withKeyValueSeparator('=')
-            .useForNull("null");
+    @Override
+    public <V> SELF with(Key<V> key, V value) {
+        int index = key.getIndex();
+        Object[] copy = Arrays.copyOf(values, Math.max(values.length, index + 1));
+        copy[index] = value;
+        return constructFunction().apply(copy);
+    }
+
+    @Override
+    public <V> SELF modify(Key<V> key, UnaryOperator<V> value) {
+        return with(key, value.apply(get(key)));
+    }
 
     @Override
     public String toString() {
         StringBuilder b = new StringBuilder("{");
-        MAP_JOINER.appendTo(b,
-                map.entrySet().stream()
-                        .map(e -> {
-                            return Maps.immutableEntry(e.getKey(), e.getValue().orElse(null));
-                        })
-                        .iterator());
+        boolean first = true;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+            if (!first) {
+                b.append(',');
+            }
+            first = false;
+            b.append(KeyIndex.idOf(i)).append('=').append(values[i]);
+        }
         b.append('}');
         return b.toString();
     }
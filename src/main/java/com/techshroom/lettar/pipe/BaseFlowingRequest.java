@@ -24,33 +24,29 @@
  */
 package com.techshroom.lettar.pipe;
 
-import java.util.Optional;
 import java.util.function.Function;
 
-import com.google.common.base.Splitter;
-import com.google.common.collect.ImmutableMap;
 import com.techshroom.lettar.Request;
+import com.techshroom.lettar.routing.PathSegments;
 
 class BaseFlowingRequest extends BaseFlowingElement<FlowingRequest> implements FlowingRequest {
 
-    private static final Splitter PATH_SPLITTER = Splitter.on('/').omitEmptyStrings();
-
     public static FlowingRequest wrap(Request<?> request) {
-        return new BFEBuilder<>(ImmutableMap.of(), BaseFlowingRequest::new)
+        return new BFEBuilder<>(BaseFlowingRequest::new)
                 .put(RequestKeys.method, request.getMethod())
-                .put(RequestKeys.path, PATH_SPLITTER.splitToList(request.getPath()))
+                .put(RequestKeys.path, PathSegments.of(request.getPath()))
                 .put(RequestKeys.queryParts, request.getQueryParts())
                 .put(RequestKeys.headers, request.getHeaders())
                 .put(RequestKeys.body(), request.getBody())
                 .build();
     }
 
-    public BaseFlowingRequest(ImmutableMap<String, Optional<Object>> map) {
-        super(map);
+    public BaseFlowingRequest(Object[] values) {
+        super(values);
     }
 
     @Override
-    protected Function<ImmutableMap<String, Optional<Object>>, FlowingRequest> constructFunction() {
+    protected Function<Object[], FlowingRequest> constructFunction() {
         return BaseFlowingRequest::new;
     }
 
@@ -24,28 +24,26 @@
  */
 package com.techshroom.lettar.pipe;
 
-import java.util.Optional;
 import java.util.function.Function;
 
-import com.google.common.collect.ImmutableMap;
 import com.techshroom.lettar.collections.HttpMultimap;
 
 class BaseFlowingResponse extends BaseFlowingElement<FlowingResponse> implements FlowingResponse {
 
     public static FlowingResponse from(int status, Object body, HttpMultimap headers) {
-        return new BFEBuilder<>(ImmutableMap.of(), BaseFlowingResponse::new)
+        return new BFEBuilder<>(BaseFlowingResponse::new)
                 .put(ResponseKeys.statusCode, status)
                 .put(ResponseKeys.body(), body)
                 .put(ResponseKeys.headers, headers)
                 .build();
     }
 
-    public BaseFlowingResponse(ImmutableMap<String, Optional<Object>> map) {
-        super(map);
+    public BaseFlowingResponse(Object[] values) {
+        super(values);
     }
 
     @Override
-    protected Function<ImmutableMap<String, Optional<Object>>, FlowingResponse> constructFunction() {
+    protected Function<Object[], FlowingResponse> constructFunction() {
         return BaseFlowingResponse::new;
     }
 
@@ -0,0 +1,137 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe;
+
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableListMultimap;
+import com.techshroom.lettar.Request;
+import com.techshroom.lettar.SimpleRequest;
+import com.techshroom.lettar.collections.HttpMultimap;
+import com.techshroom.lettar.routing.HttpMethod;
+import com.techshroom.lettar.routing.PathSegments;
+
+/**
+ * {@link Request} that reads through to a {@link FlowingRequest}, instead of
+ * copying its values up front.
+ * 
+ * <p>
+ * Views are compared by value, like {@link SimpleRequest}, and hash the same
+ * as a {@code SimpleRequest} with the same values. They are never equal to a
+ * {@code SimpleRequest}, since its {@code equals} only accepts its own kind.
+ * </p>
+ */
+final class FlowingRequestView<B> implements Request<B> {
+
+    public static <B> FlowingRequestView<B> of(FlowingRequest request) {
+        return new FlowingRequestView<>(request);
+    }
+
+    private final FlowingRequest request;
+
+    private FlowingRequestView(FlowingRequest request) {
+        this.request = request;
+    }
+
+    @Override
+    public String getPath() {
+        List<String> path = request.getPath();
+        if (path instanceof PathSegments) {
+            return ((PathSegments) path).getPath();
+        }
+        // a pipe replaced the path
+        return String.join("/", path);
+    }
+
+    @Override
+    public ImmutableListMultimap<String, String> getQueryParts() {
+        return request.getQueryParts();
+    }
+
+    @Override
+    public HttpMultimap getHeaders() {
+        return request.getHeaders();
+    }
+
+    @Override
+    public HttpMethod getMethod() {
+        return request.getMethod();
+    }
+
+    @Nullable
+    @Override
+    public B getBody() {
+        return request.getBody();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof FlowingRequestView)) {
+            return false;
+        }
+        FlowingRequestView<?> that = (FlowingRequestView<?>) o;
+        return getPath().equals(that.getPath())
+                && getQueryParts().equals(that.getQueryParts())
+                && getHeaders().equals(that.getHeaders())
+                && getMethod().equals(that.getMethod())
+                && Objects.equals(getBody(), that.getBody());
+    }
+
+    @Override
+    public int hashCode() {
+        // the same as AutoValue_SimpleRequest
+        int h = 1;
+        h *= 1000003;
+        h ^= getPath().hashCode();
+        h *= 1000003;
+        h ^= getQueryParts().hashCode();
+        h *= 1000003;
+        h ^= getHeaders().hashCode();
+        h *= 1000003;
+        h ^= getMethod().hashCode();
+        h *= 1000003;
+        h ^= Objects.hashCode(getBody());
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper("Request")
+                .add("method", getMethod())
+                .add("path", getPath())
+                .add("queryParts", getQueryParts())
+                .add("headers", getHeaders())
+                .add("body", getBody())
+                .toString();
+    }
+
+}
@@ -27,6 +27,7 @@ package com.techshroom.lettar.pipe;
 public interface Key<T> {
 
     public static <T> Key<T> of(String id) {
+        int index = KeyIndex.indexOf(id);
         class KeyImpl implements Key<T> {
 
             @Override
@@ -34,6 +35,11 @@ public interface Key<T> {
                 return id;
             }
 
+            @Override
+            public int getIndex() {
+                return index;
+            }
+
             @Override
             public String toString() {
                 return id;
@@ -44,7 +50,17 @@ public interface Key<T> {
     }
 
     String getId();
-    
+
+    /**
+     * Dense index of this key's ID, assigned when the ID is first seen. Keys
+     * with the same ID have the same index.
+     * 
+     * @return the index of this key
+     */
+    default int getIndex() {
+        return KeyIndex.indexOf(getId());
+    }
+
     default <U> Key<U> child(String next) {
         return of(getId() + "." + next);
     }
@@ -0,0 +1,76 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns each key ID a dense index, used as the slot of that key in
+ * {@link BaseFlowingElement}. Keys with the same ID share an index.
+ */
+final class KeyIndex {
+
+    private static final ConcurrentMap<String, Integer> INDEXES = new ConcurrentHashMap<>();
+    private static final Object LOCK = new Object();
+    private static volatile String[] ids = new String[16];
+    private static volatile int size;
+
+    static int indexOf(String id) {
+        Integer index = INDEXES.get(id);
+        if (index != null) {
+            return index;
+        }
+        synchronized (LOCK) {
+            index = INDEXES.get(id);
+            if (index != null) {
+                return index;
+            }
+            int next = size;
+            String[] current = ids;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, next * 2);
+            }
+            current[next] = id;
+            ids = current;
+            size = next + 1;
+            INDEXES.put(id, next);
+            return next;
+        }
+    }
+
+    static int size() {
+        return size;
+    }
+
+    static String idOf(int index) {
+        return ids[index];
+    }
+
+    private KeyIndex() {
+    }
+
+}
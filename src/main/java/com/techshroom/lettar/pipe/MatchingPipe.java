@@ -0,0 +1,84 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import javax.annotation.Nullable;
+
+/**
+ * A pipe that is both a {@link FilterPipe} and an {@link InputPipe}, and
+ * shares the work done while filtering with the input step. Pipelines call
+ * {@link #match(FlowingRequest)} while filtering, then pass its result to
+ * {@link #pipeIn(FlowingRequest, Object)}, so the request is only examined
+ * once.
+ * 
+ * <p>
+ * The match is computed from the request as it was before any input pipes
+ * ran, so it should only depend on parts of the request that input pipes do
+ * not change.
+ * </p>
+ *
+ * @param <M>
+ *            - the type of the match token
+ */
+public interface MatchingPipe<M> extends FilterPipe, InputPipe {
+
+    /**
+     * Match the request.
+     * 
+     * @param request
+     *            - the request
+     * @return an opaque token describing the match, or {@code null} if the
+     *         request should not continue down this pipe
+     */
+    @Nullable
+    M match(FlowingRequest request);
+
+    /**
+     * Pipe a request through, using the token from
+     * {@link #match(FlowingRequest)}.
+     * 
+     * @param request
+     *            - the incoming request
+     * @param match
+     *            - the non-null token returned for this request
+     * @return the request to continue piping
+     */
+    FlowingRequest pipeIn(FlowingRequest request, M match);
+
+    @Override
+    default boolean accepts(FlowingRequest request) {
+        return match(request) != null;
+    }
+
+    @Override
+    default FlowingRequest pipeIn(FlowingRequest request) {
+        M match = match(request);
+        checkState(match != null, "Request accepted that did not match: %s", request);
+        return pipeIn(request, match);
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe;
+
+import java.util.BitSet;
+import java.util.List;
+
+import com.techshroom.lettar.pipe.builtins.method.MethodPipe;
+import com.techshroom.lettar.pipe.builtins.path.PathPipe;
+import com.techshroom.lettar.routing.HttpMethod;
+import com.techshroom.lettar.routing.HttpMethodPredicate;
+import com.techshroom.lettar.routing.PathRoutePredicate;
+
+/**
+ * {@link PipelineIndex} bucketing pipelines by the {@link HttpMethod HTTP
+ * methods} their {@link MethodPipe} accepts and the number of segments their
+ * {@link PathPipe} routes match. Routes with {@code **}, and pipelines without
+ * a path filter, go in an overflow bucket that matches any segment count.
+ */
+final class MethodSegmentIndex implements PipelineIndex {
+
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+    private static final int ALL_METHODS = (1 << METHODS.length) - 1;
+
+    public static MethodSegmentIndex compile(List<Pipeline> pipelines) {
+        int[] methodMasks = new int[pipelines.size()];
+        PathPipe[] pathPipes = new PathPipe[pipelines.size()];
+        int maxSegments = -1;
+        for (int i = 0; i < pipelines.size(); i++) {
+            Pipeline pipeline = pipelines.get(i);
+            methodMasks[i] = methodMask(pipeline);
+            pathPipes[i] = PipelineIndex.findFilter(pipeline, PathPipe.class);
+            if (pathPipes[i] != null) {
+                for (PathRoutePredicate predicate : pathPipes[i].getPathMatchers()) {
+                    maxSegments = Math.max(maxSegments, predicate.getSegmentCount());
+                }
+            }
+        }
+
+        BitSet[] overflow = new BitSet[METHODS.length];
+        BitSet[][] buckets = new BitSet[METHODS.length][maxSegments + 1];
+        for (int m = 0; m < METHODS.length; m++) {
+            overflow[m] = new BitSet();
+            for (int s = 0; s <= maxSegments; s++) {
+                buckets[m][s] = new BitSet();
+            }
+        }
+        for (int i = 0; i < pipelines.size(); i++) {
+            for (int m = 0; m < METHODS.length; m++) {
+                if ((methodMasks[i] & (1 << m)) == 0) {
+                    continue;
+                }
+                if (pathPipes[i] == null) {
+                    overflow[m].set(i);
+                    continue;
+                }
+                for (PathRoutePredicate predicate : pathPipes[i].getPathMatchers()) {
+                    int segments = predicate.getSegmentCount();
+                    (segments < 0 ? overflow[m] : buckets[m][segments]).set(i);
+                }
+            }
+        }
+        // fold the overflow into each bucket, so dispatch is a single lookup
+        for (int m = 0; m < METHODS.length; m++) {
+            for (BitSet bucket : buckets[m]) {
+                bucket.or(overflow[m]);
+            }
+        }
+        return new MethodSegmentIndex(buckets, overflow);
+    }
+
+    private static int methodMask(Pipeline pipeline) {
+        MethodPipe methodPipe = PipelineIndex.findFilter(pipeline, MethodPipe.class);
+        if (methodPipe == null) {
+            return ALL_METHODS;
+        }
+        HttpMethodPredicate matcher = methodPipe.getMethodMatcher();
+        int mask = 0;
+        for (HttpMethod method : METHODS) {
+            if (matcher.matches(method)) {
+                mask |= 1 << method.ordinal();
+            }
+        }
+        if ((mask & (1 << HttpMethod.GET.ordinal())) != 0) {
+            // MethodPipe handles HEAD as GET
+            mask |= 1 << HttpMethod.HEAD.ordinal();
+        }
+        return mask;
+    }
+
+    private final BitSet[][] buckets;
+    private final BitSet[] overflow;
+
+    private MethodSegmentIndex(BitSet[][] buckets, BitSet[] overflow) {
+        this.buckets = buckets;
+        this.overflow = overflow;
+    }
+
+    @Override
+    public void collectCandidates(FlowingRequest request, BitSet candidates) {
+        int method = request.getMethod().ordinal();
+        int segments = request.getPath().size();
+        BitSet[] byMethod = buckets[method];
+        candidates.or(segments < byMethod.length ? byMethod[segments] : overflow[method]);
+    }
+
+}
@@ -41,7 +41,10 @@ import java.util.concurrent.CompletionStage;
 import com.techshroom.lettar.Request;
 import com.techshroom.lettar.Response;
 import com.techshroom.lettar.mime.MimeType;
+import com.techshroom.lettar.reflect.StringConversionException;
 import com.techshroom.lettar.reflect.StringConverters;
+import com.techshroom.lettar.routing.PathConverter;
+import com.techshroom.lettar.routing.PathConverters;
 
 class PRIMethodHandles {
 
@@ -77,7 +80,7 @@ class PRIMethodHandles {
     }
 
     public static MethodHandle routeTransform(MethodHandle base, String name) {
-        // need (LRequest;LMimeType;[LObject;)LCompletionStage;
+        // need (LRequest;LMimeType;LString;...)LCompletionStage;
 
         base = injectParameter(base, 0, Request.class);
         base = injectParameter(base, 1, MimeType.class);
@@ -88,16 +91,57 @@ class PRIMethodHandles {
         MethodHandle[] filters = new MethodHandle[type.parameterCount()];
         for (int i = 2; i < type.parameterCount(); i++) {
             Class<?> parameter = type.parameterType(i);
-            filters[i] = StringConverters.getHandleForArgType(parameter);
+            // primitives are converted directly, only boxed parameters box
+            filters[i] = argumentConverter(parameter)
+                    .asType(methodType(parameter, String.class));
         }
         base = filterArguments(base, 0, filters);
 
-        // mix into Object[] loosely
-        base = LooseSpreader.asLooseSpreader(base, 2);
-
         base = adaptReturnType(base, name);
 
-        return base;
+        return base.asType(RouteInvoker.routeType(type.parameterCount() - 2));
+    }
+
+    private static final MethodHandle PATH_CONVERTER =
+            safeFindStatic(lookup(), PRIMethodHandles.class, "pathConverter",
+                    methodType(Object.class, PathConverter.class, String.class));
+
+    /**
+     * Finds the conversion from a captured path part to a handler parameter.
+     * Types {@link StringConverters} doesn't know fall back to the
+     * {@link PathConverters} used for typed path segments.
+     * 
+     * <p>
+     * A typed segment is only {@linkplain PathConverter#accepts checked}
+     * while routing, and converted again from the captured string here. The
+     * check runs for every candidate route and mostly validates without
+     * allocating, while conversion only runs once, for the route that won.
+     * Carrying values instead of strings would box them on the matching path.
+     * It would also not help handlers whose parameter type differs from the
+     * segment's type, for example {@code {id:int}} taken as a {@code long}.
+     * </p>
+     * 
+     * @param parameter
+     *            - the handler parameter type
+     * @return {@code (String)parameter}, possibly with a more general return
+     *         type
+     */
+    private static MethodHandle argumentConverter(Class<?> parameter) {
+        if (StringConverters.hasHandleForArgType(parameter)) {
+            return StringConverters.getHandleForArgType(parameter);
+        }
+        PathConverter<?> converter = PathConverters.forType(parameter);
+        checkArgument(converter != null, "%s is not a convertible type", parameter);
+        return insertArguments(PATH_CONVERTER, 0, converter);
+    }
+
+    private static Object pathConverter(PathConverter<?> converter, String arg) throws StringConversionException {
+        Object value = converter.convert(arg, 0, arg.length());
+        if (value == null) {
+            throw new StringConversionException(new IllegalArgumentException(
+                    "cannot convert '" + arg + "' to " + converter.getType().getName()));
+        }
+        return value;
     }
 
     public static MethodHandle fillThisParam(MethodHandle base, Object $this) {
@@ -122,7 +166,7 @@ class PRIMethodHandles {
                 break;
             default:
                 // perhaps inject
-                if (type.parameterType(index).isAssignableFrom(paramType)) {
+                if (declaresParameter(base, index, paramType)) {
                     // all good
                     break;
                 }
@@ -131,6 +175,25 @@ class PRIMethodHandles {
         return base;
     }
 
+    /**
+     * Checks if {@link #injectParameter(MethodHandle, int, Class)} would pass
+     * the argument through, rather than dropping it. Callers can skip creating
+     * the argument if it's dropped, and pass {@code null} instead.
+     * 
+     * @param base
+     *            - the handle before injecting
+     * @param index
+     *            - the index of the parameter
+     * @param paramType
+     *            - the type of the injected parameter
+     * @return {@code true} if {@code base} takes the parameter at
+     *         {@code index}
+     */
+    public static boolean declaresParameter(MethodHandle base, int index, Class<?> paramType) {
+        MethodType type = base.type();
+        return index < type.parameterCount() && type.parameterType(index).isAssignableFrom(paramType);
+    }
+
     private static final MethodHandle COMPLETED_FUTURE =
             safeFindStatic(lookup(), CompletableFuture.class, "completedFuture", methodType(CompletableFuture.class, Object.class))
                     .asType(methodType(CompletableFuture.class, Response.class));
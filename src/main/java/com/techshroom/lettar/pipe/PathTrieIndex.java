@@ -0,0 +1,71 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe;
+
+import java.util.BitSet;
+import java.util.List;
+
+import com.techshroom.lettar.pipe.builtins.path.PathPipe;
+import com.techshroom.lettar.routing.PathRoutePredicate;
+import com.techshroom.lettar.routing.PathRouteTrie;
+
+/**
+ * {@link PipelineIndex} using a {@link PathRouteTrie} built from each
+ * pipeline's {@link PathPipe}. Pipelines without a path filter accept any path,
+ * and are always candidates.
+ */
+final class PathTrieIndex implements PipelineIndex {
+
+    public static PathTrieIndex compile(List<Pipeline> pipelines) {
+        PathRouteTrie.Builder trie = PathRouteTrie.builder();
+        BitSet anyPath = new BitSet(pipelines.size());
+        for (int i = 0; i < pipelines.size(); i++) {
+            PathPipe pathPipe = PipelineIndex.findFilter(pipelines.get(i), PathPipe.class);
+            if (pathPipe == null) {
+                anyPath.set(i);
+                continue;
+            }
+            for (PathRoutePredicate predicate : pathPipe.getPathMatchers()) {
+                trie.add(predicate, i);
+            }
+        }
+        return new PathTrieIndex(trie.build(), anyPath);
+    }
+
+    private final PathRouteTrie trie;
+    private final BitSet anyPath;
+
+    private PathTrieIndex(PathRouteTrie trie, BitSet anyPath) {
+        this.trie = trie;
+        this.anyPath = anyPath;
+    }
+
+    @Override
+    public void collectCandidates(FlowingRequest request, BitSet candidates) {
+        candidates.or(anyPath);
+        trie.collectMatches(request.getPath(), candidates);
+    }
+
+}
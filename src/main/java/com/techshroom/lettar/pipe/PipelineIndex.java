@@ -0,0 +1,92 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe;
+
+import java.util.BitSet;
+
+import javax.annotation.Nullable;
+
+/**
+ * Pre-computed lookup that narrows down which pipelines can accept a request.
+ * Pipelines are referred to by their registration index.
+ */
+interface PipelineIndex {
+
+    /**
+     * Finds the first filter of the given type in a pipeline.
+     * 
+     * @param pipeline
+     *            - the pipeline to search
+     * @param type
+     *            - the filter type
+     * @return the filter, or {@code null} if the pipeline has none
+     */
+    @Nullable
+    static <F extends FilterPipe> F findFilter(Pipeline pipeline, Class<F> type) {
+        for (FilterPipe filter : pipeline.getFilterPipes()) {
+            if (type.isInstance(filter)) {
+                return type.cast(filter);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Combines two indexes, so that only pipelines that are candidates in both
+     * are candidates in the result.
+     * 
+     * @param first
+     *            - the first index
+     * @param second
+     *            - the second index
+     * @return an index that intersects both
+     */
+    static PipelineIndex both(PipelineIndex first, PipelineIndex second) {
+        return (request, candidates) -> {
+            BitSet a = new BitSet();
+            first.collectCandidates(request, a);
+            if (a.isEmpty()) {
+                return;
+            }
+            BitSet b = new BitSet();
+            second.collectCandidates(request, b);
+            a.and(b);
+            candidates.or(a);
+        };
+    }
+
+    /**
+     * Sets the index of every pipeline that may accept {@code request}. It is
+     * fine to include pipelines that end up not accepting the request, but
+     * every pipeline that would accept it must be included.
+     * 
+     * @param request
+     *            - the request to route
+     * @param candidates
+     *            - the set to add candidate indexes to
+     */
+    void collectCandidates(FlowingRequest request, BitSet candidates);
+
+}
@@ -26,10 +26,11 @@ package com.techshroom.lettar.pipe;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.BitSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 import javax.annotation.Nullable;
 
@@ -37,11 +38,14 @@ import org.slf4j.Logger;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.techshroom.lettar.Request;
 import com.techshroom.lettar.Response;
 import com.techshroom.lettar.Router;
 import com.techshroom.lettar.SimpleResponse;
 import com.techshroom.lettar.collections.HttpMultimap;
+import com.techshroom.lettar.pipe.impl.CompiledPipeline;
+import com.techshroom.lettar.pipe.impl.SimplePipeline;
 import com.techshroom.lettar.util.Logging;
 
 public class PipelineRouter<IB, OB> implements Router<IB, OB> {
@@ -57,6 +61,10 @@ public class PipelineRouter<IB, OB> implements Router<IB, OB> {
         private final ImmutableList.Builder<Pipeline> pipelines = ImmutableList.builder();
         private Pipeline notFoundPipeline;
         private Pipeline serverErrorPipeline;
+        private boolean dispatchIndex;
+        private boolean pathTrie;
+        private PipelineFactory pipelineFactory = SimplePipeline::create;
+        private Executor outputExecutor = MoreExecutors.directExecutor();
 
         private Builder() {
         }
@@ -76,20 +84,99 @@ public class PipelineRouter<IB, OB> implements Router<IB, OB> {
             return this;
         }
 
+        /**
+         * If enabled, pipelines are bucketed by the HTTP methods and path
+         * segment counts they accept when the router is built. Routing then
+         * skips pipelines that can't match the request's method or path
+         * length. Pipelines are still tried in the order they were added.
+         * 
+         * @param dispatchIndex
+         *            - {@code true} to route using a method and segment count
+         *            index
+         * @return this builder
+         */
+        public Builder dispatchIndex(boolean dispatchIndex) {
+            this.dispatchIndex = dispatchIndex;
+            return this;
+        }
+
+        /**
+         * If enabled, the paths of all pipelines are compiled into a prefix
+         * trie when the router is built. Routing then only tests the pipelines
+         * whose path can match, instead of every pipeline. Pipelines are still
+         * tried in the order they were added.
+         * 
+         * @param pathTrie
+         *            - {@code true} to route using a path trie
+         * @return this builder
+         */
+        public Builder pathTrie(boolean pathTrie) {
+            this.pathTrie = pathTrie;
+            return this;
+        }
+
+        /**
+         * Sets the factory used by {@link PipelineRouterInitializer} to create
+         * pipelines for this router. Defaults to {@link SimplePipeline}, use
+         * {@link CompiledPipeline} to fold each pipeline into a single method
+         * handle.
+         * 
+         * @param pipelineFactory
+         *            - the pipeline factory
+         * @return this builder
+         */
+        public Builder pipelineFactory(PipelineFactory pipelineFactory) {
+            this.pipelineFactory = checkNotNull(pipelineFactory, "pipelineFactory");
+            return this;
+        }
+
+        public PipelineFactory getPipelineFactory() {
+            return pipelineFactory;
+        }
+
+        /**
+         * Sets the executor that runs output pipes after a handler completes.
+         * Defaults to {@link MoreExecutors#directExecutor()}, which runs them
+         * on the calling thread if the handler completed synchronously, or on
+         * the thread that completed the handler's response otherwise.
+         * 
+         * @param outputExecutor
+         *            - the output executor
+         * @return this builder
+         */
+        public Builder outputExecutor(Executor outputExecutor) {
+            this.outputExecutor = checkNotNull(outputExecutor, "outputExecutor");
+            return this;
+        }
+
+        public Executor getOutputExecutor() {
+            return outputExecutor;
+        }
+
         public <IB, OB> PipelineRouter<IB, OB> build() {
             checkNotNull(notFoundPipeline, "A NotFoundHandler is required.");
             checkNotNull(serverErrorPipeline, "A ServerErrorHandler is required.");
-            return new PipelineRouter<>(pipelines.build(), notFoundPipeline, serverErrorPipeline);
+            ImmutableList<Pipeline> pipelines = this.pipelines.build();
+            PipelineIndex index = dispatchIndex ? MethodSegmentIndex.compile(pipelines) : null;
+            if (pathTrie) {
+                PipelineIndex trie = PathTrieIndex.compile(pipelines);
+                index = index == null ? trie : PipelineIndex.both(index, trie);
+            }
+            return new PipelineRouter<>(pipelines, index, notFoundPipeline, serverErrorPipeline);
         }
 
     }
 
     private final List<Pipeline> pipelines;
+    @Nullable
+    private final PipelineIndex index;
     private final Pipeline notFoundPipeline;
     private final Pipeline serverErrorPipeline;
 
-    private PipelineRouter(List<Pipeline> pipelines, Pipeline notFoundPipeline, Pipeline serverErrorPipeline) {
+    private PipelineRouter(List<Pipeline> pipelines, @Nullable PipelineIndex index,
+            Pipeline notFoundPipeline, Pipeline serverErrorPipeline) {
         this.pipelines = pipelines;
+        this.index = index;
         this.notFoundPipeline = notFoundPipeline;
         this.serverErrorPipeline = serverErrorPipeline;
     }
@@ -97,11 +184,28 @@ public class PipelineRouter<IB, OB> implements Router<IB, OB> {
     @Override
     public CompletionStage<Response<OB>> route(Request<IB> request) {
         FlowingRequest flow = BaseFlowingRequest.wrap(request);
-        CompletionStage<FlowingResponse> resStage = pipelines.stream()
-                .map(p -> executePipeline(p, flow))
-                .filter(Objects::nonNull)
-                .findFirst()
-                .orElseGet(() -> executePipeline(notFoundPipeline, flow));
+        CompletionStage<FlowingResponse> resStage = null;
+        if (index == null) {
+            for (Pipeline pipeline : pipelines) {
+                resStage = executePipeline(pipeline, flow);
+                if (resStage != null) {
+                    break;
+                }
+            }
+        } else {
+            BitSet candidates = new BitSet(pipelines.size());
+            index.collectCandidates(flow, candidates);
+            // set bits iterate in registration order
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                resStage = executePipeline(pipelines.get(i), flow);
+                if (resStage != null) {
+                    break;
+                }
+            }
+        }
+        if (resStage == null) {
+            resStage = executePipeline(notFoundPipeline, flow);
+        }
         if (resStage == null) {
             // NFP overflowed, this is not allowed!
             resStage = handleStateError(flow, "Not Found Pipeline overflow detected.", null);
@@ -29,7 +29,6 @@ import com.techshroom.lettar.BaseRouterInitializer;
 import com.techshroom.lettar.Request;
 import com.techshroom.lettar.Response;
 import com.techshroom.lettar.Router;
-import com.techshroom.lettar.SimpleRequest;
 import com.techshroom.lettar.annotation.NotFoundHandler;
 import com.techshroom.lettar.annotation.ServerErrorHandler;
 import com.techshroom.lettar.inheiritor.HashInheritorMap;
@@ -39,7 +38,6 @@ import com.techshroom.lettar.mime.MimeType;
 import com.techshroom.lettar.pipe.PipelineRouter.Builder;
 import com.techshroom.lettar.pipe.builtins.accept.AcceptPipe;
 import com.techshroom.lettar.pipe.builtins.path.PathPipe;
-import com.techshroom.lettar.pipe.impl.SimplePipeline;
 import com.techshroom.lettar.util.Logging;
 import org.slf4j.Logger;
 
@@ -48,6 +46,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.concurrent.CompletionStage;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static com.google.common.base.Preconditions.checkState;
 import static com.techshroom.lettar.reflect.MethodHandles2.invokeHandleUnchecked;
@@ -57,6 +56,23 @@ public class PipelineRouterInitializer extends BaseRouterInitializer<PipelineRou
 
     private static final Logger LOGGER = Logging.getLogger();
 
+    private final Supplier<Builder> builderFactory;
+
+    public PipelineRouterInitializer() {
+        this(PipelineRouter::builder);
+    }
+
+    /**
+     * Creates an initializer that adds routes to builders from the given
+     * factory, which allows configuring the resulting {@link PipelineRouter}.
+     * 
+     * @param builderFactory
+     *            - creates a new builder for each router
+     */
+    public PipelineRouterInitializer(Supplier<Builder> builderFactory) {
+        this.builderFactory = builderFactory;
+    }
+
     @Override
     protected <IB, OB> Router<IB, OB> newRouter(Builder carrier) {
         return carrier.build();
@@ -64,7 +80,7 @@ public class PipelineRouterInitializer extends BaseRouterInitializer<PipelineRou
 
     @Override
     protected Builder newCarrier() {
-        return PipelineRouter.builder();
+        return builderFactory.get();
     }
 
     @Override
@@ -92,17 +108,18 @@ public class PipelineRouterInitializer extends BaseRouterInitializer<PipelineRou
                 handler = wrapMethod(controller, m);
                 pipelineConsumer = carrier::addPipeline;
             }
-            Pipeline pipe = pipeInheritorMap(methodInheritance.getInheritorMap(), handler, ctx);
+            Pipeline pipe = pipeInheritorMap(carrier, methodInheritance.getInheritorMap(), handler, ctx);
             pipelineConsumer.accept(pipe);
         }
     }
 
     private Handler serverErrorHandler(Object controller, Method m) {
         MethodHandle base = safeUnreflect(m).bindTo(controller);
+        boolean takesRequest = PRIMethodHandles.declaresParameter(base, 0, Request.class);
         MethodHandle call = PRIMethodHandles.errorHandlerTransform(base, m.getName());
 
         return flowReq -> {
-            Request<Object> request = requestFromFlow(flowReq);
+            Request<Object> request = takesRequest ? FlowingRequestView.of(flowReq) : null;
             Throwable err = flowReq.get(RequestKeys.error);
 
             CompletionStage<Response<Object>> response = invokeHandleUnchecked(() -> {
@@ -115,10 +132,11 @@ public class PipelineRouterInitializer extends BaseRouterInitializer<PipelineRou
 
     private Handler notFoundHandler(Object controller, Method m) {
         MethodHandle base = safeUnreflect(m).bindTo(controller);
+        boolean takesRequest = PRIMethodHandles.declaresParameter(base, 0, Request.class);
         MethodHandle call = PRIMethodHandles.notFoundHandlerTransform(base, m.getName());
 
         return flowReq -> {
-            Request<Object> request = requestFromFlow(flowReq);
+            Request<Object> request = takesRequest ? FlowingRequestView.of(flowReq) : null;
 
             CompletionStage<Response<Object>> response = invokeHandleUnchecked(() -> {
                 return call.invoke(request);
@@ -129,44 +147,33 @@ public class PipelineRouterInitializer extends BaseRouterInitializer<PipelineRou
     }
 
     private Handler wrapMethod(Object controller, Method handler) {
-        // call(Request,MimeType,Object[])Response
+        // call(Request,MimeType,String...)CompletionStage
         MethodHandle base = safeUnreflect(handler).bindTo(controller);
-        MethodHandle call = PRIMethodHandles.routeTransform(base, handler.getName());
+        boolean takesRequest = PRIMethodHandles.declaresParameter(base, 0, Request.class);
+        RouteInvoker invoker = RouteInvoker.create(PRIMethodHandles.routeTransform(base, handler.getName()));
 
         return flowReq -> {
-            Request<Object> request = requestFromFlow(flowReq);
+            // handlers without a Request parameter drop it
+            Request<Object> request = takesRequest ? FlowingRequestView.of(flowReq) : null;
 
             ImmutableList<String> pathParts = flowReq.get(PathPipe.parts);
-            Object[] pathPartsArray = (pathParts == null ? ImmutableList.of() : pathParts).toArray();
 
             MimeType contentType = flowReq.get(AcceptPipe.contentType);
             checkState(contentType != null, "oh no, this shouldn't happen!");
 
-            CompletionStage<Response<Object>> response = invokeHandleUnchecked(() -> {
-                return call.invoke(request, contentType, pathPartsArray);
-            });
+            CompletionStage<Response<Object>> response = invoker.invoke(request, contentType,
+                    pathParts == null ? ImmutableList.of() : pathParts);
 
             return adaptResponse(response, flowReq);
         };
     }
 
-    private Request<Object> requestFromFlow(FlowingRequest flowReq) {
-        Request<Object> request = SimpleRequest.builder()
-                .body(flowReq.getBody())
-                .headers(flowReq.getHeaders())
-                .method(flowReq.getMethod())
-                .path(String.join("/", flowReq.getPath()))
-                .queryParts(flowReq.getQueryParts())
-                .build();
-        return request;
-    }
-
     private static CompletionStage<FlowingResponse> adaptResponse(CompletionStage<Response<Object>> resStage, FlowingRequest request) {
         return resStage.thenApply(response -> BaseFlowingResponse.from(response.getStatusCode(), response.getBody(), response.getHeaders())
                 .with(ResponseKeys.request, request));
     }
 
-    private Pipeline pipeInheritorMap(InheritorMap map, Handler handler, InheritorContext ctx) {
+    private Pipeline pipeInheritorMap(Builder carrier, InheritorMap map, Handler handler, InheritorContext ctx) {
         ImmutableList.Builder<FilterPipe> filterPipes = ImmutableList.builder();
         ImmutableList.Builder<InputPipe> inPipes = ImmutableList.builder();
         ImmutableList.Builder<OutputPipe> outPipes = ImmutableList.builder();
@@ -192,7 +199,7 @@ public class PipelineRouterInitializer extends BaseRouterInitializer<PipelineRou
         ImmutableList<InputPipe> in = inPipes.build();
         ImmutableList<OutputPipe> out = outPipes.build();
         LOGGER.debug("New pipeline: filter={}, in={}, out={}", filter, in, out);
-        return SimplePipeline.create(filter, in, handler, out);
+        return carrier.getPipelineFactory().create(filter, in, handler, out, carrier.getOutputExecutor());
     }
 
 }
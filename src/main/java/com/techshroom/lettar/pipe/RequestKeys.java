@@ -40,9 +40,12 @@ public class RequestKeys {
     public static final Key<ImmutableListMultimap<String, String>> queryParts = Key.of("Request.queryParts");
     public static final Key<HttpMultimap> headers = Key.of("Request.headers");
 
+    private static final Key<Object> BODY = Key.of("Request.body");
+
     // enable retrieval of body under any type
+    @SuppressWarnings("unchecked")
     public static final <B> Key<B> body() {
-        return Key.of("Request.body");
+        return (Key<B>) BODY;
     }
 
     // during error processing:
@@ -35,9 +35,12 @@ public class ResponseKeys {
     public static final Key<Integer> statusCode = Key.of("Response.statusCode");
     public static final Key<HttpMultimap> headers = Key.of("Response.headers");
 
+    private static final Key<Object> BODY = Key.of("Response.body");
+
     // enable retrieval of body under any type
+    @SuppressWarnings("unchecked")
     public static final <B> Key<B> body() {
-        return Key.of("Response.body");
+        return (Key<B>) BODY;
     }
 
 }
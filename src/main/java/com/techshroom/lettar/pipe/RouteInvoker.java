@@ -0,0 +1,133 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+import com.google.common.base.Throwables;
+import com.techshroom.lettar.Request;
+import com.techshroom.lettar.Response;
+import com.techshroom.lettar.mime.MimeType;
+
+/**
+ * Calls a route handler with its captured path parts as separate arguments.
+ * Handlers taking up to {@value #MAX_SPECIALIZED_ARITY} parts are called with
+ * {@link MethodHandle#invokeExact} with exactly that many arguments, so no
+ * array is created per call. Like the old loose spreader, missing parts are
+ * passed as {@code null} and extra parts are ignored.
+ * 
+ * <p>
+ * There is one invoker class for every arity, so the call from the route
+ * handler is monomorphic. The handle itself is still read from a field, so
+ * the JIT can't inline the route method through it.
+ * </p>
+ */
+final class RouteInvoker {
+
+    static final int MAX_SPECIALIZED_ARITY = 4;
+
+    /**
+     * The type of a handle taking {@code arity} path parts.
+     * 
+     * @param arity
+     *            - the number of path parts
+     * @return {@code (Request, MimeType, String...)CompletionStage}
+     */
+    static MethodType routeType(int arity) {
+        return methodType(CompletionStage.class, Request.class, MimeType.class)
+                .appendParameterTypes(Collections.nCopies(arity, String.class));
+    }
+
+    /**
+     * Creates an invoker for a handle of {@link #routeType(int)}.
+     * 
+     * @param handle
+     *            - the route handle
+     * @return an invoker for the handle
+     */
+    static RouteInvoker create(MethodHandle handle) {
+        int arity = handle.type().parameterCount() - 2;
+        if (arity > MAX_SPECIALIZED_ARITY) {
+            handle = handle.asSpreader(String[].class, arity);
+        }
+        return new RouteInvoker(handle, arity);
+    }
+
+    private static String part(List<String> parts, int index) {
+        return index < parts.size() ? parts.get(index) : null;
+    }
+
+    private final MethodHandle handle;
+    private final int arity;
+
+    private RouteInvoker(MethodHandle handle, int arity) {
+        this.handle = handle;
+        this.arity = arity;
+    }
+
+    public CompletionStage<Response<Object>> invoke(Request<Object> request, MimeType contentType,
+            List<String> parts) {
+        try {
+            return invokeExact(request, contentType, parts);
+        } catch (Throwable t) {
+            Throwables.throwIfUnchecked(t);
+            throw new RuntimeException(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletionStage<Response<Object>> invokeExact(Request<Object> request, MimeType contentType,
+            List<String> parts) throws Throwable {
+        switch (arity) {
+            case 0:
+                return (CompletionStage<Response<Object>>) handle.invokeExact(request, contentType);
+            case 1:
+                return (CompletionStage<Response<Object>>) handle.invokeExact(request, contentType,
+                        part(parts, 0));
+            case 2:
+                return (CompletionStage<Response<Object>>) handle.invokeExact(request, contentType,
+                        part(parts, 0), part(parts, 1));
+            case 3:
+                return (CompletionStage<Response<Object>>) handle.invokeExact(request, contentType,
+                        part(parts, 0), part(parts, 1), part(parts, 2));
+            case 4:
+                return (CompletionStage<Response<Object>>) handle.invokeExact(request, contentType,
+                        part(parts, 0), part(parts, 1), part(parts, 2), part(parts, 3));
+            default:
+                String[] args = new String[arity];
+                for (int i = 0; i < arity; i++) {
+                    args[i] = part(parts, i);
+                }
+                return (CompletionStage<Response<Object>>) handle.invokeExact(request, contentType, args);
+        }
+    }
+
+}
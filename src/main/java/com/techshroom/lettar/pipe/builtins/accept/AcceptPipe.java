@@ -24,78 +24,92 @@
  */
 package com.techshroom.lettar.pipe.builtins.accept;
 
-import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.techshroom.lettar.mime.AcceptMime;
 import com.techshroom.lettar.mime.MimeType;
 import com.techshroom.lettar.pipe.BiPipe;
-import com.techshroom.lettar.pipe.FilterPipe;
 import com.techshroom.lettar.pipe.FlowingRequest;
 import com.techshroom.lettar.pipe.FlowingResponse;
 import com.techshroom.lettar.pipe.Key;
+import com.techshroom.lettar.pipe.MatchingPipe;
 import com.techshroom.lettar.pipe.ResponseKeys;
 
 import javax.annotation.Nullable;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
-import static com.google.common.base.Preconditions.checkState;
+public class AcceptPipe implements MatchingPipe<MimeType>, BiPipe {
 
-public class AcceptPipe implements FilterPipe, BiPipe {
-
-    // Limit number of splits to prevent attacks -- there shouldn't be this many
-    private static final Splitter ACCEPT_SPLITTER = Splitter.on(',').limit(50);
     public static final Key<MimeType> contentType = Key.of("Request.contentType");
+    /**
+     * The parsed {@code Accept} header, most preferred first. Set by the first
+     * accept pipe the request goes through.
+     */
+    public static final Key<List<MimeType>> acceptTypes = Key.of("Request.acceptTypes");
 
     public static AcceptPipe create(Iterable<MimeType> providedTypes, @Nullable MimeType defaultType) {
         return new AcceptPipe(ImmutableList.copyOf(providedTypes), defaultType);
     }
 
+    private static final MimeType ANY = MimeType.of("*", "*");
+
     private final ImmutableList<MimeType> providedTypes;
     private final @Nullable MimeType defaultType;
+    // acceptable type -> first provided type assignable to it
+    private final ImmutableMap<MimeType, MimeType> negotiationTable;
 
     private AcceptPipe(ImmutableList<MimeType> providedTypes, MimeType defaultType) {
         this.providedTypes = providedTypes;
         this.defaultType = defaultType;
+        this.negotiationTable = buildNegotiationTable(providedTypes);
     }
 
-    private Optional<MimeType> getAcceptedMimeType(FlowingRequest request) {
-        String accept = request.getHeaders().getSingleValueOrDefault("accept", "*/*");
-        List<MimeType> acceptTypes = getAcceptTypes(accept);
-        return negotiateContentType(acceptTypes, providedTypes);
+    private static ImmutableMap<MimeType, MimeType> buildNegotiationTable(List<MimeType> providedTypes) {
+        // a provided type is only assignable to itself, its primary wildcard,
+        // and */*. earlier provided types win.
+        Map<MimeType, MimeType> table = new HashMap<>();
+        for (MimeType provided : providedTypes) {
+            table.putIfAbsent(provided, provided);
+            table.putIfAbsent(MimeType.of(provided.getPrimaryType(), "*"), provided);
+            table.putIfAbsent(ANY, provided);
+        }
+        return ImmutableMap.copyOf(table);
     }
 
+    @Nullable
     @Override
-    public FlowingRequest pipeIn(FlowingRequest request) {
-        Optional<MimeType> accepted = getAcceptedMimeType(request);
-        checkState(accepted.isPresent(), "Request accepted that did not match: %s", request);
-        return request.with(contentType, accepted.get());
+    public MimeType match(FlowingRequest request) {
+        return negotiateContentType(getAcceptTypes(request));
     }
 
     @Override
-    public boolean accepts(FlowingRequest request) {
-        return getAcceptedMimeType(request).isPresent();
+    public FlowingRequest pipeIn(FlowingRequest request, MimeType match) {
+        return request.toBuilder()
+            .put(contentType, match)
+            .put(acceptTypes, getAcceptTypes(request))
+            .build();
     }
 
-    private List<MimeType> getAcceptTypes(String accept) {
-        return ImmutableList.copyOf(
-            ImmutableList.copyOf(ACCEPT_SPLITTER.split(accept)).stream()
-                .map(AcceptMime::parse)
-                .sorted()
-                .map(AcceptMime::getMimeType)
-                .iterator()
-        );
+    private static List<MimeType> getAcceptTypes(FlowingRequest request) {
+        List<MimeType> types = request.get(acceptTypes);
+        if (types == null) {
+            String accept = request.getHeaders().getSingleValueOrDefault("accept", "*/*");
+            types = AcceptMime.parseHeader(accept);
+        }
+        return types;
     }
 
-    private Optional<MimeType> negotiateContentType(List<MimeType> acceptedTypes, List<MimeType> providedTypes) {
-        for (MimeType acceptable : acceptedTypes) {
-            for (MimeType provided : providedTypes) {
-                if (provided.isAssignableTo(acceptable)) {
-                    return Optional.of(provided);
-                }
+    @Nullable
+    private MimeType negotiateContentType(List<MimeType> acceptedTypes) {
+        for (int i = 0; i < acceptedTypes.size(); i++) {
+            MimeType provided = negotiationTable.get(acceptedTypes.get(i));
+            if (provided != null) {
+                return provided;
             }
         }
-        return Optional.ofNullable(defaultType);
+        return defaultType;
     }
 
     @Override
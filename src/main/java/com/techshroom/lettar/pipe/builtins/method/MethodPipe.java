@@ -25,15 +25,17 @@
 package com.techshroom.lettar.pipe.builtins.method;
 
 import com.techshroom.lettar.pipe.BiPipe;
-import com.techshroom.lettar.pipe.FilterPipe;
 import com.techshroom.lettar.pipe.FlowingRequest;
 import com.techshroom.lettar.pipe.FlowingResponse;
 import com.techshroom.lettar.pipe.Key;
+import com.techshroom.lettar.pipe.MatchingPipe;
 import com.techshroom.lettar.pipe.ResponseKeys;
 import com.techshroom.lettar.routing.HttpMethod;
 import com.techshroom.lettar.routing.HttpMethodPredicate;
 
-public class MethodPipe implements FilterPipe, BiPipe {
+import javax.annotation.Nullable;
+
+public class MethodPipe implements MatchingPipe<Boolean>, BiPipe {
 
     public static MethodPipe create(HttpMethodPredicate methodMatcher) {
         return new MethodPipe(methodMatcher);
@@ -47,23 +49,34 @@ public class MethodPipe implements FilterPipe, BiPipe {
         this.methodMatcher = methodMatcher;
     }
 
+    public HttpMethodPredicate getMethodMatcher() {
+        return methodMatcher;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @return {@code true} if the request is a HEAD request to be handled as
+     *         GET, {@code false} if the method matched directly, or
+     *         {@code null} if it didn't match
+     */
+    @Nullable
     @Override
-    public boolean accepts(FlowingRequest request) {
-        if (methodMatcher.matches(request.getMethod())) {
-            return true;
+    public Boolean match(FlowingRequest request) {
+        if (request.getMethod() == HttpMethod.HEAD && methodMatcher.matches(HttpMethod.GET)) {
+            // Simulate with GET if needed, even if HEAD is accepted directly
+            return Boolean.TRUE;
         }
-
-        if (request.getMethod() == HttpMethod.HEAD) {
-            // Simulate with GET if needed
-            return methodMatcher.matches(HttpMethod.GET);
+        if (methodMatcher.matches(request.getMethod())) {
+            return Boolean.FALSE;
         }
-        return false;
+        return null;
     }
 
     @Override
-    public FlowingRequest pipeIn(FlowingRequest request) {
+    public FlowingRequest pipeIn(FlowingRequest request, Boolean headAsGet) {
         // Check if we need to set the "HEAD-as-GET" flag
-        if (request.getMethod() == HttpMethod.HEAD && methodMatcher.matches(HttpMethod.GET)) {
+        if (headAsGet) {
             return request.with(HEAD_AS_GET, true);
         }
         return request;
@@ -24,21 +24,35 @@
  */
 package com.techshroom.lettar.pipe.builtins.path;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
+
+import javax.annotation.Nullable;
 
 import com.google.common.collect.ImmutableList;
-import com.techshroom.lettar.pipe.FilterPipe;
 import com.techshroom.lettar.pipe.FlowingRequest;
-import com.techshroom.lettar.pipe.InputPipe;
 import com.techshroom.lettar.pipe.Key;
+import com.techshroom.lettar.pipe.MatchingPipe;
 import com.techshroom.lettar.pipe.RequestKeys;
 import com.techshroom.lettar.routing.PathRoutePredicate;
-import com.techshroom.lettar.routing.PathRoutePredicate.MatchResult;
 
-import static com.google.common.base.Preconditions.checkState;
+public class PathPipe implements MatchingPipe<PathPipe.Match> {
+
+    static final class Match {
 
-public class PathPipe implements FilterPipe, InputPipe {
+        private final PathRoutePredicate predicate;
+        private final int[] captures;
+
+        Match(PathRoutePredicate predicate, int[] captures) {
+            this.predicate = predicate;
+            this.captures = captures;
+        }
+
+    }
+
+    private static final int[] NO_CAPTURES = {};
+    // offsets are recorded here while matching, and copied for the winner
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> NO_CAPTURES);
 
     public static final Key<ImmutableList<String>> parts = RequestKeys.path.child("parts");
 
@@ -47,29 +61,51 @@ public class PathPipe implements FilterPipe, InputPipe {
     }
 
     private final ImmutableList<PathRoutePredicate> pathMatcher;
-
-    private Optional<MatchResult> getMatchResult(FlowingRequest request) {
-        List<String> path = request.getPath();
-        return pathMatcher.stream()
-            .map(p -> p.matches(path))
-            .filter(MatchResult::isSuccessfulMatch)
-            .findAny();
-    }
+    private final int maxCaptureSlots;
 
     private PathPipe(ImmutableList<PathRoutePredicate> pathMatcher) {
         this.pathMatcher = pathMatcher;
+        this.maxCaptureSlots = 2 * pathMatcher.stream()
+                .mapToInt(PathRoutePredicate::getNumberOfCapturedParts)
+                .max().orElse(0);
+    }
+
+    public ImmutableList<PathRoutePredicate> getPathMatchers() {
+        return pathMatcher;
     }
 
+    @Nullable
     @Override
-    public FlowingRequest pipeIn(FlowingRequest request) {
-        Optional<MatchResult> match = getMatchResult(request);
-        checkState(match.isPresent(), "Request accepted that did not match: %s", request);
-        return request.with(parts, match.get().getParts());
+    public Match match(FlowingRequest request) {
+        List<String> path = request.getPath();
+        int[] scratch = scratch();
+        for (PathRoutePredicate predicate : pathMatcher) {
+            if (predicate.matches(path, scratch)) {
+                int captureCount = predicate.getNumberOfCapturedParts();
+                if (captureCount == 0) {
+                    return new Match(predicate, NO_CAPTURES);
+                }
+                return new Match(predicate, Arrays.copyOf(scratch, captureCount * 2));
+            }
+        }
+        return null;
+    }
+
+    private int[] scratch() {
+        if (maxCaptureSlots == 0) {
+            return NO_CAPTURES;
+        }
+        int[] scratch = SCRATCH.get();
+        if (scratch.length < maxCaptureSlots) {
+            scratch = new int[maxCaptureSlots];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
     }
 
     @Override
-    public boolean accepts(FlowingRequest request) {
-        return getMatchResult(request).isPresent();
+    public FlowingRequest pipeIn(FlowingRequest request, Match match) {
+        return request.with(parts, match.predicate.getCapturedParts(request.getPath(), match.captures));
     }
 
     @Override
@@ -0,0 +1,243 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe.impl;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.techshroom.lettar.pipe.FilterPipe;
+import com.techshroom.lettar.pipe.FlowingRequest;
+import com.techshroom.lettar.pipe.FlowingResponse;
+import com.techshroom.lettar.pipe.Handler;
+import com.techshroom.lettar.pipe.InputPipe;
+import com.techshroom.lettar.pipe.MatchingPipe;
+import com.techshroom.lettar.pipe.OutputPipe;
+import com.techshroom.lettar.pipe.Pipe;
+import com.techshroom.lettar.pipe.Pipeline;
+import com.techshroom.lettar.util.Logging;
+import org.slf4j.Logger;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.techshroom.lettar.reflect.MethodHandles2.safeFindStatic;
+import static com.techshroom.lettar.reflect.MethodHandles2.safeFindVirtual;
+import static java.lang.invoke.MethodHandles.dropArguments;
+import static java.lang.invoke.MethodHandles.filterReturnValue;
+import static java.lang.invoke.MethodHandles.foldArguments;
+import static java.lang.invoke.MethodHandles.guardWithTest;
+import static java.lang.invoke.MethodHandles.identity;
+import static java.lang.invoke.MethodHandles.insertArguments;
+import static java.lang.invoke.MethodHandles.lookup;
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * {@link Pipeline} that folds its filter, input, handler and output steps into
+ * a single {@link MethodHandle} when created, instead of iterating the pipe
+ * lists on every request. It behaves the same as {@link SimplePipeline}.
+ */
+public class CompiledPipeline implements Pipeline {
+
+    private static final Logger LOGGER = Logging.getLogger();
+
+    private static final MethodHandle ACCEPTS = safeFindVirtual(lookup(), FilterPipe.class, "accepts",
+        methodType(boolean.class, FlowingRequest.class));
+    private static final MethodHandle PIPE_IN = safeFindVirtual(lookup(), InputPipe.class, "pipeIn",
+        methodType(FlowingRequest.class, FlowingRequest.class));
+    private static final MethodHandle PIPE_OUT = safeFindVirtual(lookup(), OutputPipe.class, "pipeOut",
+        methodType(FlowingResponse.class, FlowingResponse.class));
+    private static final MethodHandle HANDLE = safeFindVirtual(lookup(), Handler.class, "handle",
+        methodType(CompletionStage.class, FlowingRequest.class));
+    private static final MethodHandle OVERFLOW = safeFindStatic(lookup(), CompiledPipeline.class, "overflow",
+        methodType(CompletionStage.class, FlowingRequest.class, FilterPipe.class));
+    private static final MethodHandle CHECK_REQUEST = safeFindStatic(lookup(), CompiledPipeline.class, "checkRequest",
+        methodType(FlowingRequest.class, FlowingRequest.class, Pipe.class));
+    private static final MethodHandle CHECK_RESPONSE = safeFindStatic(lookup(), CompiledPipeline.class, "checkResponse",
+        methodType(FlowingResponse.class, FlowingResponse.class, Pipe.class));
+    private static final MethodHandle MATCH_INTO = safeFindStatic(lookup(), CompiledPipeline.class, "matchInto",
+        methodType(boolean.class, FlowingRequest.class, Object[].class, MatchingPipe.class, int.class));
+    private static final MethodHandle PIPE_IN_MATCHED = safeFindStatic(lookup(), CompiledPipeline.class, "pipeInMatched",
+        methodType(FlowingRequest.class, FlowingRequest.class, Object[].class, MatchingPipe.class, int.class));
+    private static final MethodHandle PIPE_OUTPUT = safeFindStatic(lookup(), CompiledPipeline.class, "pipeOutput",
+        methodType(CompletionStage.class, CompletionStage.class, Function.class, Executor.class));
+
+    public static CompiledPipeline create(List<FilterPipe> filterPipes,
+                                          List<InputPipe> inputPipes,
+                                          Handler handler,
+                                          List<OutputPipe> outputPipes) {
+        return create(filterPipes, inputPipes, handler, outputPipes, MoreExecutors.directExecutor());
+    }
+
+    public static CompiledPipeline create(List<FilterPipe> filterPipes,
+                                          List<InputPipe> inputPipes,
+                                          Handler handler,
+                                          List<OutputPipe> outputPipes,
+                                          Executor outputExecutor) {
+        return new CompiledPipeline(ImmutableList.copyOf(filterPipes),
+            ImmutableList.copyOf(inputPipes),
+            handler,
+            ImmutableList.copyOf(outputPipes),
+            outputExecutor);
+    }
+
+    private final ImmutableList<FilterPipe> filterPipes;
+    private final ImmutableList<InputPipe> inputPipes;
+    private final Handler handler;
+    private final ImmutableList<OutputPipe> outputPipes;
+    private final int matchSlotCount;
+    // (FlowingRequest, Object[] matches)CompletionStage
+    private final MethodHandle chain;
+
+    private CompiledPipeline(ImmutableList<FilterPipe> filterPipes,
+                             ImmutableList<InputPipe> inputPipes,
+                             Handler handler,
+                             ImmutableList<OutputPipe> outputPipes,
+                             Executor outputExecutor) {
+        this.filterPipes = filterPipes;
+        this.inputPipes = inputPipes;
+        this.handler = handler;
+        this.outputPipes = outputPipes;
+        MatchSlots matchSlots = MatchSlots.compute(filterPipes, inputPipes);
+        this.matchSlotCount = matchSlots.count();
+        this.chain = compile(outputExecutor, matchSlots);
+    }
+
+    private MethodHandle compile(Executor outputExecutor, MatchSlots matchSlots) {
+        MethodHandle output = identity(FlowingResponse.class);
+        for (OutputPipe pipe : outputPipes) {
+            MethodHandle pipeOut = filterReturnValue(PIPE_OUT.bindTo(pipe), insertArguments(CHECK_RESPONSE, 1, pipe));
+            output = filterReturnValue(output, pipeOut);
+        }
+        MethodHandle outputHandle = output;
+        Function<FlowingResponse, FlowingResponse> outputFunction = response -> {
+            try {
+                return (FlowingResponse) outputHandle.invokeExact(response);
+            } catch (Throwable t) {
+                Throwables.throwIfUnchecked(t);
+                throw new RuntimeException(t);
+            }
+        };
+
+        MethodHandle chain = filterReturnValue(HANDLE.bindTo(handler),
+            insertArguments(PIPE_OUTPUT, 1, outputFunction, outputExecutor));
+        chain = dropArguments(chain, 1, Object[].class);
+        // wrap from the inside out, so the first pipe runs first
+        for (int i = inputPipes.size() - 1; i >= 0; i--) {
+            InputPipe pipe = inputPipes.get(i);
+            int slot = matchSlots.inputSlot(i);
+            MethodHandle pipeIn;
+            if (slot == -1) {
+                pipeIn = dropArguments(PIPE_IN.bindTo(pipe), 1, Object[].class);
+            } else {
+                pipeIn = insertArguments(PIPE_IN_MATCHED, 2, pipe, slot);
+            }
+            pipeIn = filterReturnValue(pipeIn, insertArguments(CHECK_REQUEST, 1, pipe));
+            // (request, matches) -> chain(pipeIn(request, matches), matches)
+            chain = foldArguments(dropArguments(chain, 1, FlowingRequest.class), pipeIn);
+        }
+        for (int i = filterPipes.size() - 1; i >= 0; i--) {
+            FilterPipe filter = filterPipes.get(i);
+            int slot = matchSlots.filterSlot(i);
+            MethodHandle test;
+            if (slot == -1) {
+                test = dropArguments(ACCEPTS.bindTo(filter), 1, Object[].class);
+            } else {
+                test = insertArguments(MATCH_INTO, 2, filter, slot);
+            }
+            MethodHandle overflow = dropArguments(insertArguments(OVERFLOW, 1, filter), 1, Object[].class);
+            chain = guardWithTest(test, chain, overflow);
+        }
+        return chain;
+    }
+
+    private static CompletionStage<?> overflow(FlowingRequest request, FilterPipe filter) {
+        LOGGER.debug("{}: overflowed in pipe {}", request, filter);
+        return null;
+    }
+
+    private static boolean matchInto(FlowingRequest request, Object[] matches, MatchingPipe<?> pipe, int slot) {
+        Object match = pipe.match(request);
+        matches[slot] = match;
+        return match != null;
+    }
+
+    private static FlowingRequest pipeInMatched(FlowingRequest request, Object[] matches, MatchingPipe<?> pipe, int slot) {
+        return SimplePipeline.pipeInMatched(pipe, request, matches[slot]);
+    }
+
+    private static FlowingRequest checkRequest(FlowingRequest request, Pipe pipe) {
+        checkState(request != null, "Null request piped from %s", pipe);
+        return request;
+    }
+
+    private static FlowingResponse checkResponse(FlowingResponse response, Pipe pipe) {
+        checkState(response != null, "Null response piped from %s", pipe);
+        return response;
+    }
+
+    private static CompletionStage<?> pipeOutput(CompletionStage<FlowingResponse> stage,
+                                                 Function<FlowingResponse, FlowingResponse> output,
+                                                 Executor executor) {
+        return Stages.thenApply(stage, output, executor);
+    }
+
+    @Override
+    public ImmutableList<FilterPipe> getFilterPipes() {
+        return filterPipes;
+    }
+
+    @Override
+    public ImmutableList<InputPipe> getInputPipes() {
+        return inputPipes;
+    }
+
+    @Override
+    public Handler getHandler() {
+        return handler;
+    }
+
+    @Override
+    public ImmutableList<OutputPipe> getOutputPipes() {
+        return outputPipes;
+    }
+
+    @Override
+    public CompletionStage<FlowingResponse> handle(FlowingRequest request) {
+        Object[] matches = matchSlotCount == 0 ? null : new Object[matchSlotCount];
+        try {
+            @SuppressWarnings("unchecked")
+            CompletionStage<FlowingResponse> result = (CompletionStage<FlowingResponse>) chain.invokeExact(request, matches);
+            return result;
+        } catch (Throwable t) {
+            Throwables.throwIfUnchecked(t);
+            throw new RuntimeException(t);
+        }
+    }
+
+}
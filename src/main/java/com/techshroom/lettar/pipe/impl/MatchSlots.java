@@ -0,0 +1,99 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.pipe.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.techshroom.lettar.pipe.FilterPipe;
+import com.techshroom.lettar.pipe.InputPipe;
+import com.techshroom.lettar.pipe.MatchingPipe;
+
+/**
+ * Assigns a slot to each {@link MatchingPipe} that is in both the filter and
+ * input pipes of a pipeline, so the match from filtering can be handed to the
+ * input step.
+ */
+final class MatchSlots {
+
+    static MatchSlots compute(List<FilterPipe> filterPipes, List<InputPipe> inputPipes) {
+        int[] filterSlots = new int[filterPipes.size()];
+        int[] inputSlots = new int[inputPipes.size()];
+        Arrays.fill(filterSlots, -1);
+        Arrays.fill(inputSlots, -1);
+        int count = 0;
+        for (int i = 0; i < filterPipes.size(); i++) {
+            FilterPipe filter = filterPipes.get(i);
+            if (!(filter instanceof MatchingPipe)) {
+                continue;
+            }
+            int input = indexOfIdentical(inputPipes, filter);
+            if (input != -1 && inputSlots[input] == -1) {
+                filterSlots[i] = count;
+                inputSlots[input] = count;
+                count++;
+            }
+        }
+        return new MatchSlots(filterSlots, inputSlots, count);
+    }
+
+    private static int indexOfIdentical(List<InputPipe> pipes, Object pipe) {
+        for (int i = 0; i < pipes.size(); i++) {
+            if (pipes.get(i) == pipe) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private final int[] filterSlots;
+    private final int[] inputSlots;
+    private final int count;
+
+    private MatchSlots(int[] filterSlots, int[] inputSlots, int count) {
+        this.filterSlots = filterSlots;
+        this.inputSlots = inputSlots;
+        this.count = count;
+    }
+
+    /**
+     * @return the slot of the filter pipe at {@code index}, or {@code -1}
+     */
+    int filterSlot(int index) {
+        return filterSlots[index];
+    }
+
+    /**
+     * @return the slot of the input pipe at {@code index}, or {@code -1}
+     */
+    int inputSlot(int index) {
+        return inputSlots[index];
+    }
+
+    int count() {
+        return count;
+    }
+
+}
@@ -25,11 +25,13 @@
 package com.techshroom.lettar.pipe.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.techshroom.lettar.pipe.FilterPipe;
 import com.techshroom.lettar.pipe.FlowingRequest;
 import com.techshroom.lettar.pipe.FlowingResponse;
 import com.techshroom.lettar.pipe.Handler;
 import com.techshroom.lettar.pipe.InputPipe;
+import com.techshroom.lettar.pipe.MatchingPipe;
 import com.techshroom.lettar.pipe.OutputPipe;
 import com.techshroom.lettar.pipe.Pipeline;
 import com.techshroom.lettar.util.Logging;
@@ -37,6 +39,7 @@ import org.slf4j.Logger;
 
 import java.util.List;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 import static com.google.common.base.Preconditions.checkState;
 
@@ -44,32 +47,43 @@ public class SimplePipeline implements Pipeline {
 
     private static final Logger LOGGER = Logging.getLogger();
 
-    // TODO if we want performance, this could _easily_ be redone with
-    // MethodHandles
-
     public static SimplePipeline create(List<FilterPipe> filterPipes,
                                         List<InputPipe> inputPipes,
                                         Handler handler,
                                         List<OutputPipe> outputPipes) {
+        return create(filterPipes, inputPipes, handler, outputPipes, MoreExecutors.directExecutor());
+    }
+
+    public static SimplePipeline create(List<FilterPipe> filterPipes,
+                                        List<InputPipe> inputPipes,
+                                        Handler handler,
+                                        List<OutputPipe> outputPipes,
+                                        Executor outputExecutor) {
         return new SimplePipeline(ImmutableList.copyOf(filterPipes),
             ImmutableList.copyOf(inputPipes),
             handler,
-            ImmutableList.copyOf(outputPipes));
+            ImmutableList.copyOf(outputPipes),
+            outputExecutor);
     }
 
     private final ImmutableList<FilterPipe> filterPipes;
     private final ImmutableList<InputPipe> inputPipes;
     private final Handler handler;
     private final ImmutableList<OutputPipe> outputPipes;
+    private final Executor outputExecutor;
+    private final MatchSlots matchSlots;
 
     private SimplePipeline(ImmutableList<FilterPipe> filterPipes,
                            ImmutableList<InputPipe> inputPipes,
                            Handler handler,
-                           ImmutableList<OutputPipe> outputPipes) {
+                           ImmutableList<OutputPipe> outputPipes,
+                           Executor outputExecutor) {
         this.filterPipes = filterPipes;
         this.inputPipes = inputPipes;
         this.handler = handler;
         this.outputPipes = outputPipes;
+        this.outputExecutor = outputExecutor;
+        this.matchSlots = MatchSlots.compute(filterPipes, inputPipes);
     }
 
     @Override
@@ -98,24 +112,44 @@ public class SimplePipeline implements Pipeline {
         if (inputPiped == null) {
             return null;
         }
-        return getHandler().handle(inputPiped)
-            .thenApplyAsync(this::pipeOutput);
+        return Stages.thenApply(getHandler().handle(inputPiped), this::pipeOutput, outputExecutor);
     }
 
     private FlowingRequest pipeInput(FlowingRequest request) {
-        for (FilterPipe filter : getFilterPipes()) {
-            if (!filter.accepts(request)) {
+        Object[] matches = matchSlots.count() == 0 ? null : new Object[matchSlots.count()];
+        for (int i = 0; i < filterPipes.size(); i++) {
+            FilterPipe filter = filterPipes.get(i);
+            int slot = matchSlots.filterSlot(i);
+            boolean accepted;
+            if (slot == -1) {
+                accepted = filter.accepts(request);
+            } else {
+                matches[slot] = ((MatchingPipe<?>) filter).match(request);
+                accepted = matches[slot] != null;
+            }
+            if (!accepted) {
                 LOGGER.debug("{}: overflowed in pipe {}", request, filter);
                 return null;
             }
         }
-        for (InputPipe pipe : getInputPipes()) {
-            request = pipe.pipeIn(request);
+        for (int i = 0; i < inputPipes.size(); i++) {
+            InputPipe pipe = inputPipes.get(i);
+            int slot = matchSlots.inputSlot(i);
+            if (slot == -1) {
+                request = pipe.pipeIn(request);
+            } else {
+                request = pipeInMatched((MatchingPipe<?>) pipe, request, matches[slot]);
+            }
             checkState(request != null, "Null request piped from %s", pipe);
         }
         return request;
     }
 
+    @SuppressWarnings("unchecked")
+    static <M> FlowingRequest pipeInMatched(MatchingPipe<M> pipe, FlowingRequest request, Object match) {
+        return pipe.pipeIn(request, (M) match);
+    }
+
     private FlowingResponse pipeOutput(FlowingResponse response) {
         for (OutputPipe pipe : getOutputPipes()) {
             response = pipe.pipeOut(response);
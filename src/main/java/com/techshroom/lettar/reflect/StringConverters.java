@@ -67,6 +67,10 @@ public class StringConverters {
         HANDLES = handles.build();
     }
 
+    public static boolean hasHandleForArgType(Class<?> type) {
+        return HANDLES.containsKey(Primitives.wrap(type));
+    }
+
     public static MethodHandle getHandleForArgType(Class<?> type) {
         MethodHandle handle = HANDLES.get(Primitives.wrap(type));
         checkArgument(handle != null, "%s is not a convertible type", type);
@@ -79,7 +83,7 @@ public class StringConverters {
 
     public static boolean bool(String arg) throws StringConversionException {
         try {
-            return Boolean.valueOf(arg);
+            return Boolean.parseBoolean(arg);
         } catch (NumberFormatException e) {
             throw new StringConversionException(e);
         }
@@ -87,7 +91,7 @@ public class StringConverters {
 
     public static byte byte_(String arg) throws StringConversionException {
         try {
-            return Byte.valueOf(arg);
+            return Byte.parseByte(arg);
         } catch (NumberFormatException e) {
             throw new StringConversionException(e);
         }
@@ -95,7 +99,7 @@ public class StringConverters {
 
     public static double doubleFloating(String arg) throws StringConversionException {
         try {
-            return Double.valueOf(arg);
+            return Double.parseDouble(arg);
         } catch (NumberFormatException e) {
             throw new StringConversionException(e);
         }
@@ -103,7 +107,7 @@ public class StringConverters {
 
     public static float floating(String arg) throws StringConversionException {
         try {
-            return Float.valueOf(arg);
+            return Float.parseFloat(arg);
         } catch (NumberFormatException e) {
             throw new StringConversionException(e);
         }
@@ -111,7 +115,7 @@ public class StringConverters {
 
     public static int integer(String arg) throws StringConversionException {
         try {
-            return Integer.valueOf(arg);
+            return Integer.parseInt(arg);
         } catch (NumberFormatException e) {
             throw new StringConversionException(e);
         }
@@ -119,7 +123,7 @@ public class StringConverters {
 
     public static long longInteger(String arg) throws StringConversionException {
         try {
-            return Long.valueOf(arg);
+            return Long.parseLong(arg);
         } catch (NumberFormatException e) {
             throw new StringConversionException(e);
         }
@@ -127,7 +131,7 @@ public class StringConverters {
 
     public static short shortInteger(String arg) throws StringConversionException {
         try {
-            return Short.valueOf(arg);
+            return Short.parseShort(arg);
         } catch (NumberFormatException e) {
             throw new StringConversionException(e);
         }
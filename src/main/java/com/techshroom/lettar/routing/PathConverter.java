@@ -0,0 +1,137 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.routing;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.CharBuffer;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+/**
+ * Converts a typed path segment, such as {@code {id:int}}, to a value.
+ * Segments are passed as a range of a {@link CharSequence}, usually the whole
+ * request path, so they can be checked without creating a string. Converters
+ * are registered by name in {@link PathConverters}.
+ */
+public interface PathConverter<T> {
+
+    /**
+     * Creates a converter for an enum, matching constant names exactly.
+     * 
+     * @param type
+     *            - the enum type
+     * @return the enum converter
+     */
+    static <E extends Enum<E>> PathConverter<E> ofEnum(Class<E> type) {
+        E[] constants = type.getEnumConstants();
+        checkArgument(constants != null, "%s is not an enum", type);
+        return new PathConverter<E>() {
+
+            @Override
+            public Class<E> getType() {
+                return type;
+            }
+
+            @Nullable
+            @Override
+            public E convert(CharSequence segment, int start, int end) {
+                for (E constant : constants) {
+                    if (PathConverters.regionEquals(constant.name(), segment, start, end)) {
+                        return constant;
+                    }
+                }
+                return null;
+            }
+
+        };
+    }
+
+    /**
+     * Creates a converter that parses a string view of the segment, treating
+     * any {@link RuntimeException} as a failed match.
+     * 
+     * @param type
+     *            - the converted type
+     * @param parser
+     *            - the parser, given a view of the segment
+     * @return the converter
+     */
+    static <T> PathConverter<T> parsing(Class<T> type, Function<CharSequence, T> parser) {
+        return new PathConverter<T>() {
+
+            @Override
+            public Class<T> getType() {
+                return type;
+            }
+
+            @Nullable
+            @Override
+            public T convert(CharSequence segment, int start, int end) {
+                try {
+                    return parser.apply(CharBuffer.wrap(segment, start, end));
+                } catch (RuntimeException e) {
+                    return null;
+                }
+            }
+
+        };
+    }
+
+    Class<T> getType();
+
+    /**
+     * Converts {@code segment[start, end)}.
+     * 
+     * @param segment
+     *            - the characters containing the segment
+     * @param start
+     *            - the start of the segment, inclusive
+     * @param end
+     *            - the end of the segment, exclusive
+     * @return the value, or {@code null} if the segment isn't valid
+     */
+    @Nullable
+    T convert(CharSequence segment, int start, int end);
+
+    /**
+     * Checks if {@code segment[start, end)} can be converted. Routes call this
+     * while matching, so converters can override it to validate without
+     * creating the value.
+     * 
+     * @param segment
+     *            - the characters containing the segment
+     * @param start
+     *            - the start of the segment, inclusive
+     * @param end
+     *            - the end of the segment, exclusive
+     * @return {@code true} if the segment can be converted
+     */
+    default boolean accepts(CharSequence segment, int start, int end) {
+        return convert(segment, start, end) != null;
+    }
+
+}
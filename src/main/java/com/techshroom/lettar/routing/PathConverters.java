@@ -0,0 +1,266 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.routing;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Registry of {@link PathConverter path converters}, used for typed route
+ * segments such as {@code {id:int}}. Each converter is registered under a
+ * name, used in routes, and is also looked up by type to convert handler
+ * parameters.
+ * 
+ * <p>
+ * Built in are {@code int}, {@code long}, {@code bool}, {@code uuid},
+ * {@code date}, {@code time}, {@code datetime} and {@code instant}. Enums can
+ * be registered with {@link PathConverter#ofEnum(Class)}.
+ * </p>
+ */
+public final class PathConverters {
+
+    private static final Map<String, PathConverter<?>> BY_NAME = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, PathConverter<?>> BY_TYPE = new ConcurrentHashMap<>();
+
+    static {
+        register("int", new IntegralConverter<>(Integer.class, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        register("long", new IntegralConverter<>(Long.class, Long.MIN_VALUE, Long.MAX_VALUE));
+        register("bool", new PathConverter<Boolean>() {
+
+            @Override
+            public Class<Boolean> getType() {
+                return Boolean.class;
+            }
+
+            @Nullable
+            @Override
+            public Boolean convert(CharSequence segment, int start, int end) {
+                if (regionEqualsIgnoreCase("true", segment, start, end)) {
+                    return Boolean.TRUE;
+                }
+                if (regionEqualsIgnoreCase("false", segment, start, end)) {
+                    return Boolean.FALSE;
+                }
+                return null;
+            }
+
+        });
+        register("uuid", new UuidConverter());
+        register("date", PathConverter.parsing(LocalDate.class, LocalDate::parse));
+        register("time", PathConverter.parsing(LocalTime.class, LocalTime::parse));
+        register("datetime", PathConverter.parsing(LocalDateTime.class, LocalDateTime::parse));
+        register("instant", PathConverter.parsing(Instant.class, Instant::parse));
+    }
+
+    /**
+     * Registers a converter. Routes parsed afterwards can use it as
+     * {@code {capture:name}}.
+     * 
+     * @param name
+     *            - the name used in routes
+     * @param converter
+     *            - the converter
+     */
+    public static void register(String name, PathConverter<?> converter) {
+        checkNotNull(converter, "converter");
+        checkArgument(!name.isEmpty() && name.indexOf(':') == -1, "invalid converter name '%s'", name);
+        checkArgument(BY_NAME.putIfAbsent(name, converter) == null, "converter '%s' already registered", name);
+        BY_TYPE.putIfAbsent(converter.getType(), converter);
+    }
+
+    @Nullable
+    public static PathConverter<?> get(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * @param type
+     *            - the converted type
+     * @return the first converter registered for {@code type}, or
+     *         {@code null}
+     */
+    @Nullable
+    public static <T> PathConverter<T> forType(Class<T> type) {
+        @SuppressWarnings("unchecked")
+        PathConverter<T> converter = (PathConverter<T>) BY_TYPE.get(type);
+        return converter;
+    }
+
+    static boolean regionEquals(String value, CharSequence segment, int start, int end) {
+        if (value.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != segment.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEqualsIgnoreCase(String value, CharSequence segment, int start, int end) {
+        if (value.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != Character.toLowerCase(segment.charAt(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decimal integers in a range, validated without boxing or creating a
+     * string.
+     */
+    private static final class IntegralConverter<N extends Number> implements PathConverter<N> {
+
+        private final Class<N> type;
+        private final long min;
+        private final long max;
+
+        IntegralConverter(Class<N> type, long min, long max) {
+            this.type = type;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public Class<N> getType() {
+            return type;
+        }
+
+        @Override
+        public boolean accepts(CharSequence segment, int start, int end) {
+            if (start == end) {
+                return false;
+            }
+            boolean negative = segment.charAt(start) == '-';
+            int i = negative || segment.charAt(start) == '+' ? start + 1 : start;
+            if (i == end) {
+                return false;
+            }
+            // accumulate negatively, since min has the larger magnitude
+            long limit = negative ? min : -max;
+            long multiplyMin = limit / 10;
+            long result = 0;
+            for (; i < end; i++) {
+                int digit = Character.digit(segment.charAt(i), 10);
+                if (digit < 0 || result < multiplyMin) {
+                    return false;
+                }
+                result *= 10;
+                if (result < limit + digit) {
+                    return false;
+                }
+                result -= digit;
+            }
+            return true;
+        }
+
+        @Nullable
+        @Override
+        public N convert(CharSequence segment, int start, int end) {
+            if (!accepts(segment, start, end)) {
+                return null;
+            }
+            boolean negative = segment.charAt(start) == '-';
+            int i = negative || segment.charAt(start) == '+' ? start + 1 : start;
+            long result = 0;
+            for (; i < end; i++) {
+                result = result * 10 - Character.digit(segment.charAt(i), 10);
+            }
+            long value = negative ? result : -result;
+            Number boxed = type == Integer.class ? (Number) (int) value : (Number) value;
+            return type.cast(boxed);
+        }
+
+    }
+
+    /**
+     * UUIDs in their canonical 8-4-4-4-12 form.
+     */
+    private static final class UuidConverter implements PathConverter<UUID> {
+
+        @Override
+        public Class<UUID> getType() {
+            return UUID.class;
+        }
+
+        @Override
+        public boolean accepts(CharSequence segment, int start, int end) {
+            if (end - start != 36) {
+                return false;
+            }
+            for (int i = 0; i < 36; i++) {
+                char c = segment.charAt(start + i);
+                if (i == 8 || i == 13 || i == 18 || i == 23) {
+                    if (c != '-') {
+                        return false;
+                    }
+                } else if (Character.digit(c, 16) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Nullable
+        @Override
+        public UUID convert(CharSequence segment, int start, int end) {
+            if (!accepts(segment, start, end)) {
+                return null;
+            }
+            long most = hex(segment, start, 8) << 32 | hex(segment, start + 9, 4) << 16
+                    | hex(segment, start + 14, 4);
+            long least = hex(segment, start + 19, 4) << 48 | hex(segment, start + 24, 12);
+            return new UUID(most, least);
+        }
+
+        private static long hex(CharSequence segment, int start, int length) {
+            long value = 0;
+            for (int i = start; i < start + length; i++) {
+                value = value << 4 | Character.digit(segment.charAt(i), 16);
+            }
+            return value;
+        }
+
+    }
+
+    private PathConverters() {
+    }
+
+}
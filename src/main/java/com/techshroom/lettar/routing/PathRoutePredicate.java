@@ -31,6 +31,8 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
+
 import com.google.auto.value.AutoValue;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
@@ -44,8 +46,10 @@ public class PathRoutePredicate {
             return of(true, parts);
         }
 
+        private static final MatchResult FAIL = of(false, ImmutableList.of());
+
         public static MatchResult fail() {
-            return of(false, ImmutableList.of());
+            return FAIL;
         }
 
         private static MatchResult of(boolean success, Iterable<String> parts) {
@@ -61,13 +65,13 @@ public class PathRoutePredicate {
 
     }
 
-    private interface Part {
+    interface Part {
 
         int consume(List<String> parts, int index);
 
     }
 
-    private static final class ConstantPart implements Part {
+    static final class ConstantPart implements Part {
 
         private final String part;
 
@@ -75,9 +79,13 @@ public class PathRoutePredicate {
             this.part = part;
         }
 
+        String getPart() {
+            return part;
+        }
+
         @Override
         public int consume(List<String> parts, int index) {
-            if (parts.get(index).equals(part)) {
+            if (PathSegments.segmentEquals(parts, index, part)) {
                 index++;
             }
             return index;
@@ -90,19 +98,24 @@ public class PathRoutePredicate {
 
     }
 
-    private static final class RegexPart implements Part {
+    static final class RegexPart implements Part {
 
         private final Pattern regex;
+        // matchers are not thread-safe, but can be reset and reused
+        private final ThreadLocal<Matcher> matcher;
 
         public RegexPart(Pattern regex) {
             this.regex = regex;
+            this.matcher = ThreadLocal.withInitial(() -> regex.matcher(""));
+        }
+
+        Pattern getRegex() {
+            return regex;
         }
 
         @Override
         public int consume(List<String> parts, int index) {
-            String part = parts.get(index);
-            Matcher matcher = regex.matcher(part);
-            if (matcher.matches()) {
+            if (PathSegments.resetToSegment(matcher.get(), parts, index).matches()) {
                 index++;
             }
             return index;
@@ -115,7 +128,42 @@ public class PathRoutePredicate {
 
     }
 
-    private enum WildcardPart implements Part {
+    static final class TypedPart implements Part {
+
+        private final String name;
+        private final String typeName;
+        private final PathConverter<?> converter;
+
+        public TypedPart(String name, String typeName, PathConverter<?> converter) {
+            this.name = name;
+            this.typeName = typeName;
+            this.converter = converter;
+        }
+
+        @Override
+        public int consume(List<String> parts, int index) {
+            boolean accepted;
+            if (parts instanceof PathSegments) {
+                PathSegments segments = (PathSegments) parts;
+                accepted = converter.accepts(segments.getPath(), segments.start(index), segments.end(index));
+            } else {
+                String part = parts.get(index);
+                accepted = converter.accepts(part, 0, part.length());
+            }
+            if (accepted) {
+                index++;
+            }
+            return index;
+        }
+
+        @Override
+        public String toString() {
+            return name + ":" + typeName;
+        }
+
+    }
+
+    enum WildcardPart implements Part {
         INSTANCE;
 
         @Override
@@ -129,7 +177,7 @@ public class PathRoutePredicate {
         }
     }
 
-    private enum EndChompPart implements Part {
+    enum EndChompPart implements Part {
         INSTANCE;
 
         @Override
@@ -205,10 +253,15 @@ public class PathRoutePredicate {
                     case "static":
                         return new ConstantPart(content);
                     default:
+                        // 'name:type' matches segments the type can convert
+                        PathConverter<?> converter = PathConverters.get(content);
+                        if (converter != null) {
+                            return new TypedPart(category, content, converter);
+                        }
                         // we do not allow unknown categories.
                         // to create a static match using a ':'
                         // prefix with 'static:'.
-                        throw new IllegalStateException(String.format("Unknown category %s.", category)
+                        throw new IllegalStateException(String.format("Unknown category %s or path type %s.", category, content)
                                 + " Did you mean to create a static match containing a colon, with 'static:'?");
                 }
             } else {
@@ -220,40 +273,102 @@ public class PathRoutePredicate {
 
     private final List<Part> parts;
     private final BitSet capturing;
+    private final int numberOfCapturedParts;
+    private final int segmentCount;
 
     private PathRoutePredicate(List<Part> parts, BitSet capturing) {
         this.parts = ImmutableList.copyOf(parts);
         this.capturing = (BitSet) capturing.clone();
+        this.numberOfCapturedParts = capturing.cardinality();
+        this.segmentCount = parts.contains(EndChompPart.INSTANCE) ? -1 : parts.size();
+    }
+
+    List<Part> getParts() {
+        return parts;
     }
 
     public int getNumberOfCapturedParts() {
-        return capturing.cardinality();
+        return numberOfCapturedParts;
+    }
+
+    /**
+     * Every part but {@code **} consumes exactly one path segment, so routes
+     * without it only match paths of one length.
+     * 
+     * @return the number of path segments this route matches, or {@code -1}
+     *         if it contains {@code **}
+     */
+    public int getSegmentCount() {
+        return segmentCount;
     }
 
     public MatchResult matches(List<String> path) {
-        ImmutableList.Builder<String> p = ImmutableList.builder();
+        int[] captures = new int[getNumberOfCapturedParts() * 2];
+        if (!matches(path, captures)) {
+            return MatchResult.fail();
+        }
+        return MatchResult.success(getCapturedParts(path, captures));
+    }
+
+    /**
+     * Matches the path without allocating. If {@code captures} is not
+     * {@code null}, the start and end (exclusive) index in {@code path} of
+     * each captured part are written to it in pairs, and must be turned into
+     * strings with {@link #getCapturedParts(List, int[])}.
+     * 
+     * @param path
+     *            - the path segments to match
+     * @param captures
+     *            - array of at least twice {@link #getNumberOfCapturedParts()}
+     *            length to record captures in, or {@code null}
+     * @return {@code true} if the path matched
+     */
+    public boolean matches(List<String> path, @Nullable int[] captures) {
         int index = 0;
+        int capture = 0;
         for (int i = 0; i < parts.size(); i++) {
             if (index >= path.size()) {
                 // we ran out of parts before path, we don't match
-                return MatchResult.fail();
+                return false;
             }
             int nextIndex = parts.get(i).consume(path, index);
             nextIndex = Math.min(nextIndex, path.size());
             if (nextIndex <= index) {
                 // part didn't match, failure
-                return MatchResult.fail();
+                return false;
             }
-            if (capturing.get(i)) {
-                p.add(String.join("/", path.subList(index, nextIndex)));
+            if (captures != null && capturing.get(i)) {
+                captures[capture++] = index;
+                captures[capture++] = nextIndex;
             }
             index = nextIndex;
         }
-        if (index < path.size()) {
-            // we didn't match a full path, so no match
-            return MatchResult.fail();
+        // if we didn't match a full path, there's no match
+        return index >= path.size();
+    }
+
+    /**
+     * Builds the captured parts of a successful
+     * {@link #matches(List, int[])} call.
+     * 
+     * @param path
+     *            - the path that was matched
+     * @param captures
+     *            - the captures recorded by the match
+     * @return the captured parts
+     */
+    public ImmutableList<String> getCapturedParts(List<String> path, int[] captures) {
+        int count = getNumberOfCapturedParts();
+        if (count == 0) {
+            return ImmutableList.of();
+        }
+        ImmutableList.Builder<String> p = ImmutableList.builderWithExpectedSize(count);
+        for (int i = 0; i < count * 2; i += 2) {
+            int start = captures[i];
+            int end = captures[i + 1];
+            p.add(PathSegments.join(path, start, end));
         }
-        return MatchResult.success(p.build());
+        return p.build();
     }
 
     @Override
@@ -0,0 +1,348 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.routing;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.techshroom.lettar.routing.PathRoutePredicate.ConstantPart;
+import com.techshroom.lettar.routing.PathRoutePredicate.EndChompPart;
+import com.techshroom.lettar.routing.PathRoutePredicate.Part;
+import com.techshroom.lettar.routing.PathRoutePredicate.RegexPart;
+
+/**
+ * A prefix trie over a set of {@link PathRoutePredicate route predicates}.
+ * Constant parts are looked up by hash at each level, while wildcard and
+ * {@code re:} parts are tested as fallback edges. All {@code re:} edges of a
+ * node are merged into one pattern, so a path segment is tested against them
+ * in a single pass. {@code **} is stored on the node it starts from.
+ * 
+ * <p>
+ * Each predicate is added with an integer ID. A lookup sets the ID of every
+ * predicate that {@linkplain PathRoutePredicate#matches(List) matches} the
+ * path, so callers can use the IDs to keep their own ordering.
+ * </p>
+ */
+public final class PathRouteTrie {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private final MutableNode root = new MutableNode();
+
+        private Builder() {
+        }
+
+        public Builder add(PathRoutePredicate predicate, int id) {
+            List<Part> parts = predicate.getParts();
+            MutableNode node = root;
+            for (int i = 0; i < parts.size(); i++) {
+                Part part = parts.get(i);
+                if (part instanceof EndChompPart) {
+                    if (i + 1 == parts.size()) {
+                        node.endChomp.set(id);
+                    }
+                    // otherwise nothing can follow '**', it never matches
+                    return this;
+                }
+                node = node.child(part);
+            }
+            node.terminal.set(id);
+            return this;
+        }
+
+        public PathRouteTrie build() {
+            return new PathRouteTrie(root.freeze());
+        }
+
+    }
+
+    private static final class MutableNode {
+
+        // (?x) or (?i:, but not groups like (?: or (?=
+        private static final Pattern INLINE_FLAGS = Pattern.compile("\\(\\?[a-zA-Z-]+[):]");
+
+        private final Map<String, MutableNode> constants = new HashMap<>();
+        // keyed by toString() to share equal wildcard/regex edges
+        private final Map<String, Part> dynamicParts = new HashMap<>();
+        private final Map<String, MutableNode> dynamic = new HashMap<>();
+        private final List<String> dynamicOrder = new ArrayList<>();
+        private final BitSet terminal = new BitSet();
+        private final BitSet endChomp = new BitSet();
+
+        MutableNode child(Part part) {
+            if (part instanceof ConstantPart) {
+                return constants.computeIfAbsent(((ConstantPart) part).getPart(), k -> new MutableNode());
+            }
+            String key = part.toString();
+            if (!dynamic.containsKey(key)) {
+                dynamicParts.put(key, part);
+                dynamic.put(key, new MutableNode());
+                dynamicOrder.add(key);
+            }
+            return dynamic.get(key);
+        }
+
+        Node freeze() {
+            Map<String, Node> frozenConstants = new HashMap<>();
+            constants.forEach((k, v) -> frozenConstants.put(k, v.freeze()));
+            ImmutableList.Builder<Edge> edges = ImmutableList.builder();
+            List<Edge> regexEdges = new ArrayList<>();
+            for (String key : dynamicOrder) {
+                Edge edge = new Edge(dynamicParts.get(key), dynamic.get(key).freeze());
+                if (isCombinable(edge.part)) {
+                    regexEdges.add(edge);
+                } else {
+                    edges.add(edge);
+                }
+            }
+            RegexEdges regexes = RegexEdges.combine(regexEdges);
+            if (regexes == null) {
+                edges.addAll(regexEdges);
+            }
+            return new Node(ConstantEdges.of(frozenConstants), edges.build(), regexes, terminal, endChomp);
+        }
+
+        private static boolean isCombinable(Part part) {
+            if (!(part instanceof RegexPart)) {
+                return false;
+            }
+            Pattern regex = ((RegexPart) part).getRegex();
+            // groups would be renumbered (or clash by name) in the combined
+            // pattern, and quoting or flags (like a comment in (?x)) can
+            // spill into the patterns after it, so only plain regexes are
+            // merged
+            return regex.matcher("").groupCount() == 0
+                    && regex.flags() == 0
+                    && !regex.pattern().contains("\\Q")
+                    && !INLINE_FLAGS.matcher(regex.pattern()).find();
+        }
+
+    }
+
+    private static final class Edge {
+
+        private final Part part;
+        private final Node target;
+
+        Edge(Part part, Node target) {
+            this.part = part;
+            this.target = target;
+        }
+
+    }
+
+    /**
+     * The constant edges of a node, in an open addressing table that is probed
+     * with {@link PathSegments#segmentHash(int) segment hashes}, so segments
+     * are compared in place instead of being turned into strings.
+     */
+    private static final class ConstantEdges {
+
+        private static final ConstantEdges EMPTY = new ConstantEdges(0);
+
+        static ConstantEdges of(Map<String, Node> edges) {
+            if (edges.isEmpty()) {
+                return EMPTY;
+            }
+            // at most half full
+            ConstantEdges table = new ConstantEdges(Integer.highestOneBit(edges.size() * 2 - 1) << 1);
+            edges.forEach(table::put);
+            return table;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        private final String[] keys;
+        private final int[] hashes;
+        private final Node[] targets;
+
+        private ConstantEdges(int capacity) {
+            this.keys = new String[capacity];
+            this.hashes = new int[capacity];
+            this.targets = new Node[capacity];
+        }
+
+        private void put(String key, Node target) {
+            int mask = keys.length - 1;
+            int hash = key.hashCode();
+            int i = spread(hash) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            hashes[i] = hash;
+            targets[i] = target;
+        }
+
+        @Nullable
+        Node get(List<String> path, int index) {
+            if (keys.length == 0) {
+                return null;
+            }
+            int mask = keys.length - 1;
+            int hash = PathSegments.segmentHash(path, index);
+            for (int i = spread(hash) & mask; keys[i] != null; i = (i + 1) & mask) {
+                if (hashes[i] == hash && PathSegments.segmentEquals(path, index, keys[i])) {
+                    return targets[i];
+                }
+            }
+            return null;
+        }
+
+    }
+
+    /**
+     * The {@code re:} edges of a node, merged into one pattern. Each regex is
+     * wrapped in an optional lookahead anchored at the end of the segment,
+     * followed by an empty marker group. One {@link Matcher#lookingAt()} then
+     * tries every regex, and a marker group is set exactly when its regex
+     * matches the whole segment.
+     */
+    private static final class RegexEdges {
+
+        /**
+         * Merges the edges, or returns {@code null} if there are none or the
+         * merged pattern doesn't compile, in which case each edge is matched
+         * on its own.
+         */
+        @Nullable
+        static RegexEdges combine(List<Edge> edges) {
+            if (edges.isEmpty()) {
+                return null;
+            }
+            StringBuilder combined = new StringBuilder();
+            Node[] targets = new Node[edges.size()];
+            for (int i = 0; i < edges.size(); i++) {
+                Edge edge = edges.get(i);
+                combined.append("(?:(?=(?:")
+                        .append(((RegexPart) edge.part).getRegex().pattern())
+                        .append(")\\z)())?");
+                targets[i] = edge.target;
+            }
+            try {
+                return new RegexEdges(Pattern.compile(combined.toString()), targets);
+            } catch (PatternSyntaxException e) {
+                return null;
+            }
+        }
+
+        private final Node[] targets;
+        private final ThreadLocal<Matcher> matcher;
+
+        private RegexEdges(Pattern pattern, Node[] targets) {
+            this.targets = targets;
+            this.matcher = ThreadLocal.withInitial(() -> pattern.matcher(""));
+        }
+
+    }
+
+    private static final class Node {
+
+        private final ConstantEdges constants;
+        private final ImmutableList<Edge> dynamic;
+        @Nullable
+        private final RegexEdges regexes;
+        private final BitSet terminal;
+        private final BitSet endChomp;
+
+        Node(ConstantEdges constants, ImmutableList<Edge> dynamic, @Nullable RegexEdges regexes,
+                BitSet terminal, BitSet endChomp) {
+            this.constants = constants;
+            this.dynamic = dynamic;
+            this.regexes = regexes;
+            this.terminal = (BitSet) terminal.clone();
+            this.endChomp = (BitSet) endChomp.clone();
+        }
+
+    }
+
+    private final Node root;
+
+    private PathRouteTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Sets the ID of every predicate matching {@code path} in {@code matches}.
+     * 
+     * @param path
+     *            - the split request path
+     * @param matches
+     *            - the set to add matching IDs to
+     */
+    public void collectMatches(List<String> path, BitSet matches) {
+        collectMatches(root, path, 0, matches);
+    }
+
+    private static void collectMatches(Node node, List<String> path, int index, BitSet matches) {
+        if (index >= path.size()) {
+            matches.or(node.terminal);
+            return;
+        }
+        // '**' needs at least one part left, which we have here
+        matches.or(node.endChomp);
+        Node constant = node.constants.get(path, index);
+        if (constant != null) {
+            collectMatches(constant, path, index + 1, matches);
+        }
+        for (Edge edge : node.dynamic) {
+            if (edge.part.consume(path, index) > index) {
+                collectMatches(edge.target, path, index + 1, matches);
+            }
+        }
+        if (node.regexes != null) {
+            collectRegexMatches(node.regexes, path, index, matches);
+        }
+    }
+
+    private static void collectRegexMatches(RegexEdges regexes, List<String> path, int index, BitSet matches) {
+        Matcher matcher = regexes.matcher.get();
+        // all groups are optional, this always succeeds
+        PathSegments.resetToSegment(matcher, path, index).lookingAt();
+        Node[] targets = regexes.targets;
+        for (int i = 0; i < targets.length; i++) {
+            // the matcher is only used by this node, so it is safe to recurse
+            if (matcher.start(i + 1) >= 0) {
+                collectMatches(targets[i], path, index + 1, matches);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar.routing;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.regex.Matcher;
+
+/**
+ * A request path split on {@code '/'}, as a view over the original string.
+ * Empty segments are skipped. Only the offsets of each segment are stored,
+ * route parts are compared against the original string in place, and segment
+ * strings are only created when {@linkplain #get(int) requested}.
+ */
+public final class PathSegments extends AbstractList<String> implements RandomAccess {
+
+    private static final int[] NO_BOUNDS = {};
+
+    public static PathSegments of(String path) {
+        int count = 0;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) != '/' && (i == 0 || path.charAt(i - 1) == '/')) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return new PathSegments(path, NO_BOUNDS);
+        }
+        int[] bounds = new int[count * 2];
+        int b = 0;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                continue;
+            }
+            int end = path.indexOf('/', i);
+            if (end == -1) {
+                end = path.length();
+            }
+            bounds[b++] = i;
+            bounds[b++] = end;
+            i = end;
+        }
+        return new PathSegments(path, bounds);
+    }
+
+    /**
+     * Joins {@code path[from, to)} with {@code '/'}. For a
+     * {@link PathSegments} without doubled slashes in that range, this is a
+     * single substring of the original path.
+     * 
+     * @param path
+     *            - the path segments
+     * @param from
+     *            - the first segment, inclusive
+     * @param to
+     *            - the last segment, exclusive
+     * @return the joined segments
+     */
+    public static String join(List<String> path, int from, int to) {
+        if (to - from == 1) {
+            return path.get(from);
+        }
+        if (path instanceof PathSegments) {
+            return ((PathSegments) path).join(from, to);
+        }
+        return String.join("/", path.subList(from, to));
+    }
+
+    static boolean segmentEquals(List<String> path, int index, String value) {
+        if (path instanceof PathSegments) {
+            return ((PathSegments) path).segmentEquals(index, value);
+        }
+        return path.get(index).equals(value);
+    }
+
+    static int segmentHash(List<String> path, int index) {
+        if (path instanceof PathSegments) {
+            return ((PathSegments) path).segmentHash(index);
+        }
+        return path.get(index).hashCode();
+    }
+
+    /**
+     * Resets {@code matcher} to match only the given segment of the path.
+     * 
+     * @param matcher
+     *            - the matcher to reset
+     * @param path
+     *            - the path segments
+     * @param index
+     *            - the index of the segment
+     * @return {@code matcher}
+     */
+    static Matcher resetToSegment(Matcher matcher, List<String> path, int index) {
+        if (path instanceof PathSegments) {
+            PathSegments segments = (PathSegments) path;
+            return matcher.reset(segments.path).region(segments.start(index), segments.end(index));
+        }
+        return matcher.reset(path.get(index));
+    }
+
+    private final String path;
+    private final int[] bounds;
+    // segment strings, created on demand
+    private final String[] strings;
+
+    private PathSegments(String path, int[] bounds) {
+        this.path = path;
+        this.bounds = bounds;
+        this.strings = new String[bounds.length / 2];
+    }
+
+    /**
+     * @return the original path
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public int start(int index) {
+        checkElementIndex(index, size());
+        return bounds[index * 2];
+    }
+
+    public int end(int index) {
+        checkElementIndex(index, size());
+        return bounds[index * 2 + 1];
+    }
+
+    public boolean segmentEquals(int index, String value) {
+        int start = start(index);
+        return end(index) - start == value.length() && path.regionMatches(start, value, 0, value.length());
+    }
+
+    /**
+     * @param index
+     *            - the index of the segment
+     * @return the same hash code as {@code get(index).hashCode()}
+     */
+    public int segmentHash(int index) {
+        int end = end(index);
+        int hash = 0;
+        for (int i = start(index); i < end; i++) {
+            hash = 31 * hash + path.charAt(i);
+        }
+        return hash;
+    }
+
+    public String join(int from, int to) {
+        checkPositionIndexes(from, to, size());
+        if (from == to) {
+            return "";
+        }
+        for (int i = from + 1; i < to; i++) {
+            if (start(i) != end(i - 1) + 1) {
+                // doubled slashes, which the segments don't include
+                return String.join("/", subList(from, to));
+            }
+        }
+        return path.substring(start(from), end(to - 1));
+    }
+
+    @Override
+    public String get(int index) {
+        String segment = strings[index];
+        if (segment == null) {
+            // racing threads create equal strings, which is harmless
+            segment = path.substring(start(index), end(index));
+            strings[index] = segment;
+        }
+        return segment;
+    }
+
+    @Override
+    public int size() {
+        return strings.length;
+    }
+
+}
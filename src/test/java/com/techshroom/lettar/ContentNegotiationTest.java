@@ -0,0 +1,124 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.techshroom.lettar.mime.AcceptMime;
+import com.techshroom.lettar.mime.MimeType;
+import com.techshroom.lettar.pipe.FlowingRequest;
+import com.techshroom.lettar.pipe.Pipeline;
+import com.techshroom.lettar.pipe.PipelineRouter;
+import com.techshroom.lettar.pipe.builtins.accept.AcceptPipe;
+import com.techshroom.lettar.pipe.impl.SimplePipeline;
+
+public class ContentNegotiationTest extends AbstractRouterTest {
+
+    private static final MimeType TEXT = MimeType.of("text", "plain");
+    private static final MimeType JSON = MimeType.of("application", "json");
+
+    @Test
+    public void testAcceptOrdering() throws Exception {
+        assertEquals(ImmutableList.of(JSON, TEXT, MimeType.of("*", "*")),
+                AcceptMime.parseHeader("*/*;q=0.1, text/plain;q=0.5, application/json"));
+        assertEquals(ImmutableList.of(JSON, MimeType.of("text", "*"), MimeType.of("*", "*")),
+                AcceptMime.parseHeader("*/*, text/*, application/json"));
+    }
+
+    @Test
+    public void testNegotiation() throws Exception {
+        AcceptPipe pipe = AcceptPipe.create(ImmutableList.of(TEXT, JSON), null);
+        assertEquals(TEXT, negotiate(pipe, "*/*"));
+        assertEquals(JSON, negotiate(pipe, "text/plain;q=0.5, application/json"));
+        assertEquals(JSON, negotiate(pipe, "application/*"));
+        assertEquals(JSON, negotiate(pipe, "image/png, APPLICATION/JSON"));
+        assertNull(negotiate(pipe, "image/png"));
+    }
+
+    @Test
+    public void testHeaderCacheHit() throws Exception {
+        String header = "text/html, application/xhtml+xml;q=0.9, */*;q=0.8";
+        ImmutableList<MimeType> parsed = AcceptMime.parseHeader(header);
+        // looked up by value, not by the header instance
+        assertSame(parsed, AcceptMime.parseHeader(new String(header)));
+    }
+
+    @Test
+    public void testLongHeaderBypassesCache() throws Exception {
+        String header = "application/json;q=0.9;pad=" + Strings.repeat("x", 1024);
+        ImmutableList<MimeType> parsed = AcceptMime.parseHeader(header);
+        assertEquals(ImmutableList.of(JSON), parsed);
+        assertNotSame(parsed, AcceptMime.parseHeader(header));
+    }
+
+    @Test
+    public void testAcceptTypesKey() throws Exception {
+        String header = "text/plain;q=0.5, application/json";
+        FlowingRequest request = route(AcceptPipe.create(ImmutableList.of(TEXT, JSON), null), header);
+        assertEquals(JSON, request.get(AcceptPipe.contentType));
+        assertEquals(ImmutableList.of(JSON, TEXT), request.get(AcceptPipe.acceptTypes));
+        // the cached parse is shared with the request
+        assertSame(AcceptMime.parseHeader(header), request.get(AcceptPipe.acceptTypes));
+    }
+
+    private static MimeType negotiate(AcceptPipe pipe, String accept) throws Exception {
+        FlowingRequest handled = route(pipe, accept);
+        return handled == null ? null : handled.get(AcceptPipe.contentType);
+    }
+
+    private static FlowingRequest route(AcceptPipe pipe, String accept) throws Exception {
+        AtomicReference<FlowingRequest> handled = new AtomicReference<>();
+        Pipeline pipeline = SimplePipeline.create(ImmutableList.of(pipe), ImmutableList.of(pipe),
+                request -> {
+                    handled.set(request);
+                    return new CompletableFuture<>();
+                },
+                ImmutableList.of());
+        Pipeline notFound = SimplePipeline.create(ImmutableList.of(), ImmutableList.of(),
+                request -> new CompletableFuture<>(),
+                ImmutableList.of());
+        Router<String, String> router = PipelineRouter.builder()
+                .addPipeline(pipeline)
+                .notFoundPipeline(notFound)
+                .serverErrorPipeline(notFound)
+                .build();
+        router.route(requestBuilder("/")
+                .headers(ImmutableMap.of("accept", accept))
+                .build());
+        return handled.get();
+    }
+
+}
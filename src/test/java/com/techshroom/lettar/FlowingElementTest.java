@@ -0,0 +1,115 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.techshroom.lettar.pipe.BaseFlowingElement;
+import com.techshroom.lettar.pipe.FlowingElement;
+import com.techshroom.lettar.pipe.Key;
+
+public class FlowingElementTest {
+
+    private static final Key<String> FIRST = Key.of("test.element.first");
+    private static final Key<String> SECOND = Key.of("test.element.second");
+
+    private static final class TestElement extends BaseFlowingElement<TestElement> {
+
+        TestElement(Object[] values) {
+            super(values);
+        }
+
+        @Override
+        protected Function<Object[], TestElement> constructFunction() {
+            return TestElement::new;
+        }
+
+    }
+
+    private static TestElement element() {
+        return new BaseFlowingElement.BFEBuilder<>(TestElement::new).build();
+    }
+
+    @Test
+    public void testBuilderDoesNotChangeSource() throws Exception {
+        TestElement source = element().with(FIRST, "source");
+        FlowingElement.Builder<TestElement> builder = source.toBuilder();
+        builder.put(FIRST, "changed").put(SECOND, "added");
+        TestElement built = builder.build();
+
+        assertEquals("source", source.get(FIRST));
+        assertNull(source.get(SECOND));
+        assertEquals("changed", built.get(FIRST));
+        assertEquals("added", built.get(SECOND));
+    }
+
+    @Test
+    public void testBuilderCopiesAfterBuild() throws Exception {
+        FlowingElement.Builder<TestElement> builder = element().toBuilder();
+        TestElement first = builder.put(FIRST, "1").build();
+        TestElement second = builder.put(FIRST, "2").build();
+
+        assertEquals("1", first.get(FIRST));
+        assertEquals("2", second.get(FIRST));
+    }
+
+    @Test
+    public void testWithChains() throws Exception {
+        TestElement source = element();
+        TestElement chained = source.with(FIRST, "a").with(SECOND, "b").with(FIRST, "c");
+
+        assertEquals("c", chained.get(FIRST));
+        assertEquals("b", chained.get(SECOND));
+        assertNull(source.get(FIRST));
+        assertNull(source.get(SECOND));
+        assertEquals("c!", chained.modify(FIRST, v -> v + "!").get(FIRST));
+        assertEquals("c", chained.get(FIRST));
+    }
+
+    @Test
+    public void testKeysRegisteredAfterElement() throws Exception {
+        TestElement source = element().with(FIRST, "a");
+        // registered after the element's array was sized
+        Key<String> late = Key.of("test.element.late");
+        Key<String> lateAgain = Key.of("test.element.late");
+
+        assertNull(source.get(late));
+        TestElement withLate = source.with(late, "late");
+        assertEquals("late", withLate.get(late));
+        // keys with the same ID share a slot
+        assertEquals("late", withLate.get(lateAgain));
+        assertEquals("a", withLate.get(FIRST));
+        assertNull(source.get(lateAgain));
+
+        TestElement built = source.toBuilder().put(lateAgain, "built").build();
+        assertEquals("built", built.get(late));
+    }
+
+}
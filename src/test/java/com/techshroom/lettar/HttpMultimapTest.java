@@ -0,0 +1,95 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.techshroom.lettar.collections.HttpMultimap;
+
+public class HttpMultimapTest {
+
+    @Test
+    public void testCaseInsensitive() throws Exception {
+        HttpMultimap headers = HttpMultimap.copyOfSingle(ImmutableMap.of("Content-Type", "text/plain"));
+        assertEquals("text/plain", headers.getSingleValueOrDefault("content-type", null));
+        assertEquals("text/plain", headers.getSingleValueOrDefault("CONTENT-TYPE", null));
+        assertSame(headers, headers.setIfAbsent("content-TYPE", "application/json"));
+
+        HttpMultimap lower = HttpMultimap.copyOfSingle(ImmutableMap.of("content-type", "text/plain"));
+        assertEquals(lower, headers);
+        assertEquals(lower.hashCode(), headers.hashCode());
+        assertNotEquals(lower, headers.set("content-type", "text/html"));
+    }
+
+    @Test
+    public void testEdits() throws Exception {
+        HttpMultimap headers = HttpMultimap.of()
+                .add("b", "1")
+                .add("a", "1")
+                .add("B", "2")
+                .set("c", "1");
+        assertEquals("HttpMultimap{multimap={a=[1], B=[1, 2], c=[1]}}", headers.toString());
+        assertEquals(HttpMultimap.copyOf(ImmutableListMultimap.of("a", "1", "c", "1")), headers.remove("b"));
+        assertEquals(HttpMultimap.of(), headers.remove("a").remove("b").remove("c"));
+    }
+
+    @Test
+    public void testBuilderMatchesEdits() throws Exception {
+        HttpMultimap original = HttpMultimap.copyOfSingle(ImmutableMap.of("x", "1", "y", "2"));
+        HttpMultimap edited = original
+                .setIfAbsent("content-type", "text/plain")
+                .add("x", "3")
+                .remove("y");
+        HttpMultimap built = original.toBuilder()
+                .setIfAbsent("content-type", "text/plain")
+                .add("x", "3")
+                .remove("y")
+                .build();
+        assertEquals(edited, built);
+        assertEquals(ImmutableList.copyOf(edited.entrySet()), ImmutableList.copyOf(built.entrySet()));
+    }
+
+    @Test
+    public void testLargeLookup() throws Exception {
+        HttpMultimap.Builder builder = HttpMultimap.builder();
+        for (int i = 0; i < 20; i++) {
+            builder.set("X-Header-" + i, String.valueOf(i));
+        }
+        HttpMultimap headers = builder.build();
+        for (int i = 0; i < 20; i++) {
+            assertEquals(String.valueOf(i), headers.getSingleValueOrDefault("x-header-" + i, null));
+        }
+        assertNull(headers.getSingleValueOrDefault("x-header-20", null));
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.techshroom.lettar.pipe.FlowingRequest;
+import com.techshroom.lettar.pipe.Key;
+import com.techshroom.lettar.pipe.MatchingPipe;
+import com.techshroom.lettar.pipe.Pipeline;
+import com.techshroom.lettar.pipe.PipelineFactory;
+import com.techshroom.lettar.pipe.PipelineRouter;
+import com.techshroom.lettar.pipe.impl.CompiledPipeline;
+import com.techshroom.lettar.pipe.impl.SimplePipeline;
+
+public class MatchingPipeTest extends AbstractRouterTest {
+
+    private static final Key<String> LENGTH = Key.of("test.length");
+
+    private static final class LengthPipe implements MatchingPipe<String> {
+
+        private final AtomicInteger matchCalls = new AtomicInteger();
+
+        @Override
+        public String match(FlowingRequest request) {
+            matchCalls.incrementAndGet();
+            int length = request.getPath().size();
+            return length > 1 ? String.valueOf(length) : null;
+        }
+
+        @Override
+        public FlowingRequest pipeIn(FlowingRequest request, String match) {
+            return request.with(LENGTH, match);
+        }
+
+        @Override
+        public String toString() {
+            return "Length";
+        }
+
+    }
+
+    @Test
+    public void testSimplePipelineMatchesOnce() throws Exception {
+        assertMatchesOnce(SimplePipeline::create);
+    }
+
+    @Test
+    public void testCompiledPipelineMatchesOnce() throws Exception {
+        assertMatchesOnce(CompiledPipeline::create);
+    }
+
+    private static void assertMatchesOnce(PipelineFactory factory) throws Exception {
+        LengthPipe pipe = new LengthPipe();
+        AtomicReference<FlowingRequest> handled = new AtomicReference<>();
+        Pipeline pipeline = factory.create(ImmutableList.of(pipe), ImmutableList.of(pipe),
+                request -> {
+                    handled.set(request);
+                    return new CompletableFuture<>();
+                },
+                ImmutableList.of(), MoreExecutors.directExecutor());
+        Pipeline notFound = factory.create(ImmutableList.of(), ImmutableList.of(),
+                request -> {
+                    throw new AssertionError("not found: " + request);
+                },
+                ImmutableList.of(), MoreExecutors.directExecutor());
+        Router<String, String> router = PipelineRouter.builder()
+                .addPipeline(pipeline)
+                .notFoundPipeline(notFound)
+                .serverErrorPipeline(notFound)
+                .build();
+        router.route(request("/a/b/c"));
+        assertEquals(1, pipe.matchCalls.get());
+        assertEquals("3", handled.get().get(LENGTH));
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.techshroom.lettar.mime.MimeType;
+
+public class MimeTypeTest {
+
+    @Test
+    public void testInterning() throws Exception {
+        MimeType json = MimeType.of("application", "json");
+        assertSame(json, MimeType.parse("application/json"));
+        assertSame(json, MimeType.parse("Application/JSON"));
+        assertEquals("application/json", MimeType.of("APPLICATION", "Json").toString());
+        assertSame(MimeType.of("text", "*"), MimeType.parse("text"));
+
+        MimeType custom = MimeType.parse("x-test/x-Interning");
+        assertSame(custom, MimeType.of("x-test", "x-interning"));
+    }
+
+    @Test
+    public void testInterningAfterTableFills() throws Exception {
+        for (int i = 0; i < 4096; i++) {
+            MimeType.parse("x-flood/x-" + i);
+        }
+        MimeType late = MimeType.parse("x-test/x-late");
+        assertSame(late, MimeType.parse("x-test/x-late"));
+    }
+
+    @Test
+    public void testWellKnownTypesSurviveFlood() throws Exception {
+        MimeType plain = MimeType.parse("text/plain");
+        MimeType json = MimeType.parse("application/json");
+        MimeType any = MimeType.parse("*/*");
+        for (int i = 0; i < 16384; i++) {
+            MimeType.parse("x-flood-" + i + "/x-" + i);
+        }
+        assertSame(plain, MimeType.parse("text/plain"));
+        assertSame(json, MimeType.of("Application", "JSON"));
+        assertSame(any, MimeType.parse("*/*"));
+    }
+
+    @Test
+    public void testInternStats() throws Exception {
+        MimeType.InternStats before = MimeType.getInternStats();
+        MimeType.parse("text/plain");
+        MimeType.InternStats after = MimeType.getInternStats();
+        assertTrue(after.getSize() > 0);
+        assertEquals(before.getHitCount() + 1, after.getHitCount());
+        assertTrue(after.getHitRate() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWildcardPrimaryRequiresWildcardSecondary() throws Exception {
+        MimeType.parse("*/json");
+    }
+
+}
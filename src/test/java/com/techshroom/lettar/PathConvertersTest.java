@@ -0,0 +1,89 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.google.common.base.Splitter;
+import com.techshroom.lettar.routing.HttpMethod;
+import com.techshroom.lettar.routing.PathConverter;
+import com.techshroom.lettar.routing.PathConverters;
+import com.techshroom.lettar.routing.PathRoutePredicate;
+import com.techshroom.lettar.routing.PathSegments;
+
+public class PathConvertersTest {
+
+    private static <T> T convert(String name, String segment) {
+        @SuppressWarnings("unchecked")
+        PathConverter<T> converter = (PathConverter<T>) PathConverters.get(name);
+        return converter.convert(segment, 0, segment.length());
+    }
+
+    @Test
+    public void testIntegralRanges() throws Exception {
+        assertEquals(Integer.MAX_VALUE, (int) convert("int", "2147483647"));
+        assertEquals(Integer.MIN_VALUE, (int) convert("int", "-2147483648"));
+        assertNull(convert("int", "2147483648"));
+        assertNull(convert("int", "-"));
+        assertNull(convert("int", "1e3"));
+        assertEquals(Long.MIN_VALUE, (long) convert("long", "-9223372036854775808"));
+        assertNull(convert("long", "9223372036854775808"));
+    }
+
+    @Test
+    public void testObjectTypes() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        assertEquals(uuid, convert("uuid", uuid.toString()));
+        assertNull(convert("uuid", "not-a-uuid"));
+        assertEquals(LocalDate.of(2018, 4, 1), convert("date", "2018-04-01"));
+        assertNull(convert("date", "2018-13-01"));
+        assertEquals(Boolean.TRUE, convert("bool", "TRUE"));
+    }
+
+    @Test
+    public void testEnum() throws Exception {
+        PathConverter<HttpMethod> converter = PathConverter.ofEnum(HttpMethod.class);
+        assertEquals(HttpMethod.POST, converter.convert("/POST/", 1, 5));
+        assertNull(converter.convert("post", 0, 4));
+    }
+
+    @Test
+    public void testTypedRoutes() throws Exception {
+        PathRoutePredicate route = PathRoutePredicate.parse("/items/{id:int}/{at:date}");
+        assertTrue(route.matches(PathSegments.of("/items/42/2018-04-01"), null));
+        assertFalse(route.matches(PathSegments.of("/items/x/2018-04-01"), null));
+        assertTrue(route.matches(Splitter.on('/').omitEmptyStrings().splitToList("/items/42/2018-04-01"), null));
+        assertEquals("/items/{id:int}/{at:date}", route.toString());
+    }
+
+}
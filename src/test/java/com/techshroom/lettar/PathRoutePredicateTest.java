@@ -0,0 +1,100 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.techshroom.lettar.pipe.FlowingRequest;
+import com.techshroom.lettar.pipe.Pipeline;
+import com.techshroom.lettar.pipe.PipelineRouter;
+import com.techshroom.lettar.pipe.builtins.path.PathPipe;
+import com.techshroom.lettar.pipe.impl.SimplePipeline;
+import com.techshroom.lettar.routing.PathRoutePredicate;
+import com.techshroom.lettar.routing.PathSegments;
+
+public class PathRoutePredicateTest extends AbstractRouterTest {
+
+    @Test
+    public void testCaptureOffsets() throws Exception {
+        PathRoutePredicate route = PathRoutePredicate.parse("/svc/{re:\\d+}/{id:int}/{**}");
+        assertEquals(3, route.getNumberOfCapturedParts());
+        List<String> path = PathSegments.of("/svc/42/7/a/b");
+        int[] captures = new int[6];
+        assertTrue(route.matches(path, captures));
+        // the constant part is skipped, ** spans the rest
+        assertArrayEquals(new int[] { 1, 2, 2, 3, 3, 5 }, captures);
+        assertEquals(ImmutableList.of("42", "7", "a/b"), route.getCapturedParts(path, captures));
+        assertTrue(route.matches(path, null));
+    }
+
+    @Test
+    public void testCaptureOffsetsRejectTypedPart() throws Exception {
+        PathRoutePredicate route = PathRoutePredicate.parse("/svc/{re:\\d+}/{id:int}");
+        assertFalse(route.matches(PathSegments.of("/svc/42/x"), new int[4]));
+        assertFalse(route.matches(PathSegments.of("/svc/x/7"), null));
+    }
+
+    @Test
+    public void testCapturesWithoutCapturedParts() throws Exception {
+        PathRoutePredicate route = PathRoutePredicate.parse("/svc/status");
+        List<String> path = PathSegments.of("/svc/status");
+        assertTrue(route.matches(path, new int[0]));
+        assertEquals(ImmutableList.of(), route.getCapturedParts(path, new int[0]));
+    }
+
+    @Test
+    public void testPathPipeCapturesWinnerAfterPartialMatch() throws Exception {
+        // the first route writes a capture before failing on "x"
+        PathPipe pipe = PathPipe.create(ImmutableList.of(
+                PathRoutePredicate.parse("/a/{re:[a-z]+}/x"),
+                PathRoutePredicate.parse("/a/{*}/y/{id:int}")));
+        AtomicReference<FlowingRequest> handled = new AtomicReference<>();
+        Pipeline pipeline = SimplePipeline.create(ImmutableList.of(pipe), ImmutableList.of(pipe),
+                request -> {
+                    handled.set(request);
+                    return new CompletableFuture<>();
+                },
+                ImmutableList.of(), MoreExecutors.directExecutor());
+        Router<String, String> router = PipelineRouter.builder()
+                .addPipeline(pipeline)
+                .notFoundPipeline(pipeline)
+                .serverErrorPipeline(pipeline)
+                .build();
+        router.route(request("/a/b/y/7"));
+        assertEquals(ImmutableList.of("b", "7"), handled.get().get(PathPipe.parts));
+    }
+
+}
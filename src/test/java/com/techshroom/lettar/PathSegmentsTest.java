@@ -0,0 +1,71 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.techshroom.lettar.routing.PathSegments;
+
+public class PathSegmentsTest {
+
+    private static final Splitter PATH_SPLITTER = Splitter.on('/').omitEmptyStrings();
+
+    @Test
+    public void testSameSegmentsAsSplitter() throws Exception {
+        for (String path : ImmutableList.of("", "/", "//", "foo", "/foo", "/foo/", "//foo//bar//", "/a/b/c.txt")) {
+            PathSegments segments = PathSegments.of(path);
+            assertEquals(path, PATH_SPLITTER.splitToList(path), segments);
+            for (int i = 0; i < segments.size(); i++) {
+                assertEquals(path, segments.get(i).hashCode(), segments.segmentHash(i));
+                assertTrue(path, segments.segmentEquals(i, segments.get(i)));
+            }
+            assertEquals(path, segments.getPath());
+        }
+    }
+
+    @Test
+    public void testSegmentEquals() throws Exception {
+        PathSegments segments = PathSegments.of("/foo/foobar");
+        assertTrue(segments.segmentEquals(0, "foo"));
+        assertFalse(segments.segmentEquals(0, "fo"));
+        assertFalse(segments.segmentEquals(1, "foo"));
+    }
+
+    @Test
+    public void testJoin() throws Exception {
+        PathSegments segments = PathSegments.of("/a/b//c/d");
+        assertEquals("a/b", segments.join(0, 2));
+        assertEquals("b/c/d", segments.join(1, 4));
+        assertEquals("c/d", segments.join(2, 4));
+        assertEquals("", segments.join(1, 1));
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * This file is part of lettar, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) TechShroom Studios <https://techshroom.com>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.techshroom.lettar;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static org.junit.Assert.assertEquals;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.techshroom.lettar.pipe.PipelineRouter;
+import com.techshroom.lettar.pipe.PipelineRouterInitializer;
+import com.techshroom.lettar.pipe.builtins.path.Path;
+import com.techshroom.lettar.routing.HttpMethod;
+import com.techshroom.lettar.routing.PathRoutePredicate;
+import com.techshroom.lettar.routing.PathRouteTrie;
+
+public class PathTrieRouterTest extends AbstractRouterTest {
+
+    private static final Splitter PATH_SPLITTER = Splitter.on('/').omitEmptyStrings();
+
+    private static final ImmutableList<String> ROUTES = ImmutableList.of(
+            "/",
+            "/foo",
+            "/foo/bar",
+            "/foo/*",
+            "/foo/{*}/baz",
+            "/foo/**",
+            "/foo/**/bar",
+            "/re:\\d+/x",
+            "/re:[0-9]{2}/y",
+            "/re:\\d+/y",
+            "/re:(a|b)c/y",
+            "/re:(?i)abc/y",
+            "/re:abc/y",
+            "/{re:[a-z]+}/**",
+            "/*/*",
+            "/static:a:b",
+            "/**",
+            "/conflict/{*}");
+
+    private static final ImmutableList<String> PATHS = ImmutableList.of(
+            "/",
+            "//",
+            "/foo",
+            "/foo/bar",
+            "/foo//bar",
+            "/foo/qux",
+            "/foo/qux/baz",
+            "/foo/a/b/c",
+            "/42/x",
+            "/42/y",
+            "/4/y",
+            "/ac/y",
+            "/abc/y",
+            "/ABC/y",
+            "/abc/x",
+            "/ABC/x",
+            "/a:b",
+            "/x/y",
+            "/X/Y/Z",
+            "/conflict/exact",
+            "/conflict/other",
+            "/conflict/a/b",
+            "/res1/list",
+            "/ec/nomnomnom",
+            "/ec/nom/nom",
+            "/re/42",
+            "/re/NaN",
+            "/query",
+            "/error",
+            "/json",
+            "/async",
+            "/nonexist");
+
+    @Test
+    public void testTrieMatchesPredicates() throws Exception {
+        assertTrieMatchesPredicates(ROUTES, PATHS);
+    }
+
+    @Test
+    public void testUnclosedQuoteRegexIsNotCombined() throws Exception {
+        assertTrieMatchesPredicates(
+                ImmutableList.of("/re:\\Qa.b/y", "/re:[a-z]+/y"),
+                ImmutableList.of("/a.b/y", "/axb/y", "/ab/y", "/a.b/x"));
+    }
+
+    @Test
+    public void testCommentsFlagRegexIsNotCombined() throws Exception {
+        assertTrieMatchesPredicates(
+                ImmutableList.of("/re:(?x)a b # the rest/y", "/re:[0-9]+/y"),
+                ImmutableList.of("/ab/y", "/a b/y", "/42/y", "/ab/x"));
+    }
+
+    private static void assertTrieMatchesPredicates(List<String> routes, List<String> paths) {
+        List<PathRoutePredicate> predicates = routes.stream()
+                .map(PathRoutePredicate::parse)
+                .collect(toImmutableList());
+        PathRouteTrie.Builder builder = PathRouteTrie.builder();
+        for (int i = 0; i < predicates.size(); i++) {
+            builder.add(predicates.get(i), i);
+        }
+        PathRouteTrie trie = builder.build();
+
+        for (String path : paths) {
+            List<String> split = PATH_SPLITTER.splitToList(path);
+            BitSet expected = new BitSet();
+            for (int i = 0; i < predicates.size(); i++) {
+                if (predicates.get(i).matches(split).isSuccessfulMatch()) {
+                    expected.set(i);
+                }
+            }
+            BitSet actual = new BitSet();
+            trie.collectMatches(split, actual);
+            assertEquals(path, expected, actual);
+        }
+    }
+
+    @Test
+    public void testSameRoutingAsLinearScan() throws Exception {
+        ImmutableList<Object> controllers = ImmutableList.of(new TestRoutes(), new ConflictRoutes());
+        Router<String, String> linear = new PipelineRouterInitializer(PipelineRouter::builder)
+                .newRouter(controllers);
+        ImmutableList<Router<String, String>> indexed = ImmutableList.of(
+                new PipelineRouterInitializer(() -> PipelineRouter.builder().dispatchIndex(true))
+                        .newRouter(controllers),
+                new PipelineRouterInitializer(() -> PipelineRouter.builder().pathTrie(true))
+                        .newRouter(controllers),
+                new PipelineRouterInitializer(() -> PipelineRouter.builder().dispatchIndex(true).pathTrie(true))
+                        .newRouter(controllers));
+
+        for (Router<String, String> router : indexed) {
+            for (String path : PATHS) {
+                for (HttpMethod method : HttpMethod.values()) {
+                    assertSameResponse(linear, router, requestBuilder(path).method(method).build());
+                }
+                assertSameResponse(linear, router, request(path, ImmutableListMultimap.of("page", "index")));
+                assertSameResponse(linear, router, requestBuilder(path)
+                        .headers(ImmutableMap.of("accept", "impossible/notathing"))
+                        .build());
+            }
+        }
+    }
+
+    private static void assertSameResponse(Router<String, String> expectedRouter, Router<String, String> actualRouter,
+            Request<String> request) throws Exception {
+        Response<String> expected = getStageValue(expectedRouter.route(request));
+        Response<String> actual = getStageValue(actualRouter.route(request));
+        String message = request.getMethod() + " " + request.getPath();
+        assertEquals(message, expected.getStatusCode(), actual.getStatusCode());
+        assertEquals(message, expected.getBody(), actual.getBody());
+        assertEquals(message, expected.getHeaders(), actual.getHeaders());
+    }
+
+    public static class ConflictRoutes {
+
+        @Path("/conflict/{*}")
+        public Response<String> wildcard(String part) {
+            return SimpleResponse.of(200, "wildcard " + part);
+        }
+
+        @Path("/conflict/exact")
+        public Response<String> exact() {
+            return SimpleResponse.of(200, "exact");
+        }
+
+        @Path("/conflict/{**}")
+        public Response<String> endChomp(String rest) {
+            return SimpleResponse.of(200, "chomp " + rest);
+        }
+
+        @Path("/{re:[a-z]+}/{**}")
+        public Response<String> regexChomp(String first, String rest) {
+            return SimpleResponse.of(200, "regex " + first + " " + rest);
+        }
+
+    }
+
+}
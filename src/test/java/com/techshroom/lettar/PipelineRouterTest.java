@@ -24,10 +24,18 @@
  */
 package com.techshroom.lettar;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.techshroom.lettar.pipe.PipelineRouterInitializer;
+import com.techshroom.lettar.pipe.builtins.path.Path;
 import com.techshroom.lettar.routing.HttpMethod;
 import org.junit.Before;
 import org.junit.Test;
@@ -36,9 +44,25 @@ public class PipelineRouterTest extends AbstractRouterTest {
 
     private Router<String, String> router;
 
+    protected PipelineRouterInitializer newInitializer() {
+        return new PipelineRouterInitializer();
+    }
+
+    public static class CapturingRoutes {
+
+        private final List<Request<String>> requests = new ArrayList<>();
+
+        @Path("/capture/{*}")
+        public Response<String> capture(Request<String> request, String part) {
+            requests.add(request);
+            return SimpleResponse.of(200, part);
+        }
+
+    }
+
     @Before
     public void setup() {
-        router = new PipelineRouterInitializer()
+        router = newInitializer()
                 .newRouter(ImmutableList.of(new TestRoutes()));
     }
 
@@ -53,6 +77,13 @@ public class PipelineRouterTest extends AbstractRouterTest {
         assertRespEqualsIgnContentType(SimpleResponse.of(404, "404 Page"), router.route(request("/re/NaN")));
     }
 
+    @Test
+    public void testHeadDropsBodyWhenHeadIsAccepted() throws Exception {
+        assertRespEqualsIgnContentType(SimpleResponse.of(200, "Any Method"), router.route(request("/any")));
+        assertRespEqualsIgnContentType(SimpleResponse.of(200, null),
+                router.route(requestBuilder("/any").method(HttpMethod.HEAD).build()));
+    }
+
     @Test
     public void testBodyTypeDecoder() throws Exception {
         Request<String> request = SimpleRequest.builder("msg")
@@ -62,6 +93,27 @@ public class PipelineRouterTest extends AbstractRouterTest {
         assertRespEqualsIgnContentType(SimpleResponse.of(200, "msg; type=class java.lang.String"), router.route(request));
     }
 
+    @Test
+    public void testRequestReadsThroughToFlow() throws Exception {
+        assertRespEqualsIgnContentType(SimpleResponse.of(200, "GET /echo//a/b a/b"), router.route(request("/echo//a/b")));
+        assertRespEqualsIgnContentType(SimpleResponse.of(200, "GET echo/x x"), router.route(request("echo/x")));
+    }
+
+    @Test
+    public void testConvertedParts() throws Exception {
+        assertRespEqualsIgnContentType(SimpleResponse.of(200, "a123true"), router.route(request("/arity/a/1/2/3/true")));
+    }
+
+    @Test
+    public void testTypedParts() throws Exception {
+        assertRespEqualsIgnContentType(SimpleResponse.of(200, "int -42"), router.route(request("/typed/-42")));
+        assertRespEqualsIgnContentType(SimpleResponse.of(200, "uuid 123e4567-e89b-12d3-a456-426655440000"),
+                router.route(request("/typed/123e4567-e89b-12d3-a456-426655440000")));
+        // conversion failures fall through to the not found handler
+        assertRespEqualsIgnContentType(SimpleResponse.of(404, "404 Page"), router.route(request("/typed/99999999999")));
+        assertRespEqualsIgnContentType(SimpleResponse.of(404, "404 Page"), router.route(request("/typed/nope")));
+    }
+
     @Test
     public void testQueryRoutes() throws Exception {
         assertRespEqualsIgnContentType(SimpleResponse.of(200, "Queried 'index' Page"), router.route(request("/query",
@@ -104,4 +156,36 @@ public class PipelineRouterTest extends AbstractRouterTest {
         assertRespEqualsIgnContentType(SimpleResponse.of(200, "async op!"), router.route(request("/async")));
     }
 
+    @Test
+    public void testSyncRoutesCompleteInline() throws Exception {
+        // default output executor is direct, so nothing hops threads
+        assertTrue(router.route(request("/")).toCompletableFuture().isDone());
+        assertTrue(router.route(request("/nonexist")).toCompletableFuture().isDone());
+    }
+
+    @Test
+    public void testHandlerRequestsHaveValueEquality() throws Exception {
+        CapturingRoutes routes = new CapturingRoutes();
+        Router<String, String> capturing = newInitializer()
+                .newRouter(ImmutableList.of(new TestRoutes(), routes));
+        getStageValue(capturing.route(request("/capture/a")));
+        getStageValue(capturing.route(request("/capture/a")));
+        getStageValue(capturing.route(request("/capture/b")));
+        Request<String> first = routes.requests.get(0);
+        Request<String> second = routes.requests.get(1);
+        Request<String> other = routes.requests.get(2);
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, other);
+        SimpleRequest<String> copy = SimpleRequest.<String> builder()
+                .method(first.getMethod())
+                .path(first.getPath())
+                .queryParts(first.getQueryParts())
+                .headers(first.getHeaders())
+                .body(first.getBody())
+                .build();
+        assertEquals(copy.hashCode(), first.hashCode());
+    }
+
 }
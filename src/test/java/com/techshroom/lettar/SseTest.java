@@ -25,15 +25,43 @@
 package com.techshroom.lettar;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.ByteStreams;
+import com.techshroom.lettar.addons.sse.BaseSseEmitter;
+import com.techshroom.lettar.addons.sse.ConflatingSseEmitter;
+import com.techshroom.lettar.addons.sse.ServerSentEvent;
+import com.techshroom.lettar.addons.sse.SseBroadcaster;
+import com.techshroom.lettar.addons.sse.SseEmitResult;
+import com.techshroom.lettar.addons.sse.SseEmitter;
+import com.techshroom.lettar.addons.sse.SseKeepAlive;
+import com.techshroom.lettar.addons.sse.SseMetrics;
+import com.techshroom.lettar.addons.sse.SseOverflowPolicy;
+import com.techshroom.lettar.addons.sse.SseQueueLimits;
+import com.techshroom.lettar.addons.sse.SseSink;
+import com.techshroom.lettar.addons.sse.SseSubscription;
 import com.techshroom.lettar.pipe.PipelineRouterInitializer;
 
 public class SseTest extends AbstractRouterTest {
@@ -61,4 +89,379 @@ public class SseTest extends AbstractRouterTest {
         assertArrayEquals(expected, data);
     }
 
+    @Test(timeout = 5000)
+    public void testBlockedReaderWakesOnClose() throws Exception {
+        BaseSseEmitter emitter = new BaseSseEmitter(SimpleResponse::builder);
+        InputStream stream = getStageValue(emitter.getResponseStage()).getBody();
+        assertEquals(0, stream.available());
+
+        CompletableFuture<byte[]> read = new CompletableFuture<>();
+        Thread reader = new Thread(() -> {
+            try {
+                read.complete(ByteStreams.toByteArray(stream));
+            } catch (IOException e) {
+                read.completeExceptionally(e);
+            }
+        }, "sse-reader");
+        reader.start();
+        awaitWaiting(reader);
+        emitter.emit(ServerSentEvent.builder().data("\u00e9").build());
+        // the reader takes the event, then blocks again
+        while (emitter.getQueuedEvents() > 0) {
+            Thread.sleep(1);
+        }
+        awaitWaiting(reader);
+        emitter.close();
+
+        assertArrayEquals("data: \u00e9\n\n".getBytes(StandardCharsets.UTF_8), read.get());
+        assertEquals(-1, stream.read());
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testPushDeliveryRespectsDemand() throws Exception {
+        BaseSseEmitter emitter = new BaseSseEmitter(SimpleResponse::builder);
+        List<String> received = new ArrayList<>();
+        AtomicBoolean closed = new AtomicBoolean();
+        SseSubscription subscription = emitter.subscribe(new SseSink() {
+
+            @Override
+            public void onData(ByteBuffer data) {
+                received.add(StandardCharsets.UTF_8.decode(data).toString());
+            }
+
+            @Override
+            public void onClose() {
+                closed.set(true);
+            }
+
+        });
+        for (int i = 1; i <= 3; i++) {
+            emitter.emit(ServerSentEvent.builder().data("event " + i).build());
+        }
+        assertEquals(ImmutableList.of(), received);
+
+        subscription.request(2);
+        assertEquals(ImmutableList.of("data: event 1\n\n", "data: event 2\n\n"), received);
+
+        emitter.close();
+        assertFalse(closed.get());
+        subscription.request(1);
+        assertEquals("data: event 3\n\n", received.get(2));
+        assertTrue(closed.get());
+    }
+
+    @Test(timeout = 5000)
+    public void testSinkRunsWithoutStreamLock() throws Exception {
+        BaseSseEmitter emitter = new BaseSseEmitter(SimpleResponse::builder);
+        List<SseEmitResult> fromOtherThread = new ArrayList<>();
+        emitter.subscribe(new SseSink() {
+
+            @Override
+            public void onData(ByteBuffer data) {
+                if (fromOtherThread.isEmpty()) {
+                    // would deadlock if the emitting thread held the lock
+                    fromOtherThread.add(CompletableFuture.supplyAsync(
+                            () -> emitter.offer(ServerSentEvent.builder().data("e2").build())).join());
+                }
+            }
+
+            @Override
+            public void onClose() {
+            }
+
+        }).request(Long.MAX_VALUE);
+        emitter.emit(ServerSentEvent.builder().data("e1").build());
+        assertEquals(ImmutableList.of(SseEmitResult.QUEUED), fromOtherThread);
+
+        InputStream body = getStageValue(emitter.getResponseStage()).getBody();
+        try {
+            body.read();
+            fail("read a stream delivered to a sink");
+        } catch (IOException expected) {
+        }
+        emitter.close();
+    }
+
+    @Test
+    public void testBroadcastMatchesEmit() throws Exception {
+        ServerSentEvent event = ServerSentEvent.builder()
+                .comment("hello\r\nworld")
+                .name("test")
+                .id("1")
+                .data("line 1\nline 2")
+                .build();
+        BaseSseEmitter single = new BaseSseEmitter(SimpleResponse::builder);
+        single.emit(event);
+        single.close();
+        byte[] expected = ByteStreams.toByteArray(getStageValue(single.getResponseStage()).getBody());
+
+        ExecutorService fanOut = Executors.newFixedThreadPool(2);
+        for (SseBroadcaster broadcaster : new SseBroadcaster[] {
+                SseBroadcaster.create(),
+                SseBroadcaster.builder().fanOutExecutor(fanOut).fanOutBatchSize(1).build() }) {
+            List<BaseSseEmitter> emitters = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                BaseSseEmitter emitter = new BaseSseEmitter(SimpleResponse::builder);
+                emitters.add(emitter);
+                broadcaster.add(emitter);
+            }
+            emitters.get(1).close();
+
+            assertEquals(2, broadcaster.broadcast(event));
+            assertEquals(2, broadcaster.size());
+
+            broadcaster.close();
+            for (int i : new int[] { 0, 2 }) {
+                InputStream body = getStageValue(emitters.get(i).getResponseStage()).getBody();
+                assertArrayEquals(expected, ByteStreams.toByteArray(body));
+            }
+        }
+        fanOut.shutdown();
+    }
+
+    @Test
+    public void testEncodesUtf8AndLineEndings() throws Exception {
+        BaseSseEmitter emitter = new BaseSseEmitter(SimpleResponse::builder);
+        String data = "caf\u00e9\r\n\u2603 \ud83d\ude00\n\ud83d\nend\r";
+        emitter.emit(ServerSentEvent.builder()
+                .name("\u00fcber")
+                .data(data)
+                .build());
+        emitter.close();
+        byte[] body = ByteStreams.toByteArray(getStageValue(emitter.getResponseStage()).getBody());
+
+        StringBuilder expected = new StringBuilder("event: \u00fcber\n");
+        for (String line : data.split("\r?\n", -1)) {
+            expected.append("data: ").append(line).append('\n');
+        }
+        expected.append('\n');
+        assertArrayEquals(expected.toString().getBytes(StandardCharsets.UTF_8), body);
+    }
+
+    @Test
+    public void testQueueLimitPolicies() throws Exception {
+        BaseSseEmitter dropNewest = emitThree(SseQueueLimits.of(2, 1024, SseOverflowPolicy.DROP_NEWEST),
+                SseEmitResult.QUEUED, SseEmitResult.QUEUED, SseEmitResult.DROPPED);
+        assertEquals(2, dropNewest.getQueuedEvents());
+        assertEquals(20, dropNewest.getQueuedBytes());
+        assertEquals("data: e1\n\ndata: e2\n\n", readAll(dropNewest));
+
+        BaseSseEmitter dropOldest = emitThree(SseQueueLimits.of(3, 20, SseOverflowPolicy.DROP_OLDEST),
+                SseEmitResult.QUEUED, SseEmitResult.QUEUED, SseEmitResult.QUEUED_DROPPED_OLDEST);
+        assertEquals("data: e2\n\ndata: e3\n\n", readAll(dropOldest));
+
+        long disconnects = SseMetrics.getDisconnects();
+        BaseSseEmitter disconnect = emitThree(SseQueueLimits.of(2, 1024, SseOverflowPolicy.DISCONNECT),
+                SseEmitResult.QUEUED, SseEmitResult.QUEUED, SseEmitResult.DISCONNECTED);
+        assertFalse(disconnect.isOpen());
+        assertEquals(0, disconnect.getQueuedBytes());
+        assertEquals(disconnects + 1, SseMetrics.getDisconnects());
+        assertEquals("", readAll(disconnect));
+        assertEquals(SseEmitResult.CLOSED, disconnect.offer(ServerSentEvent.builder().data("e4").build()));
+    }
+
+    @Test
+    public void testReaderCloseReleasesQueuedEvents() throws Exception {
+        long queuedBytes = SseMetrics.getQueuedBytes();
+        long queuedEvents = SseMetrics.getQueuedEvents();
+        BaseSseEmitter emitter = emitThree(SseQueueLimits.UNBOUNDED,
+                SseEmitResult.QUEUED, SseEmitResult.QUEUED, SseEmitResult.QUEUED);
+        assertEquals(queuedBytes + 30, SseMetrics.getQueuedBytes());
+
+        InputStream body = getStageValue(emitter.getResponseStage()).getBody();
+        body.close();
+        assertFalse(emitter.isOpen());
+        assertEquals(0, emitter.getQueuedBytes());
+        assertEquals(0, emitter.getQueuedEvents());
+        assertEquals(queuedBytes, SseMetrics.getQueuedBytes());
+        assertEquals(queuedEvents, SseMetrics.getQueuedEvents());
+        assertEquals(-1, body.read());
+    }
+
+    @Test
+    public void testDefaultLimitsAreUnbounded() throws Exception {
+        BaseSseEmitter emitter = new BaseSseEmitter(SimpleResponse::builder);
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(emitter.emit(ServerSentEvent.builder().data("e").build()));
+        }
+        assertTrue(emitter.isOpen());
+        assertEquals(5000, emitter.getQueuedEvents());
+        emitter.close();
+        assertFalse(emitter.emit(ServerSentEvent.builder().data("e").build()));
+        assertEquals(SseEmitResult.CLOSED, emitter.offer(ServerSentEvent.builder().data("e").build()));
+    }
+
+    @Test
+    public void testMinimalEmitterGetsDefaults() throws Exception {
+        List<ServerSentEvent> emitted = new ArrayList<>();
+        SseEmitter minimal = new SseEmitter() {
+
+            @Override
+            public boolean emit(ServerSentEvent event) {
+                return emitted.add(event);
+            }
+
+            @Override
+            public CompletionStage<Response<InputStream>> getResponseStage() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+
+        };
+        assertEquals(SseEmitResult.QUEUED, minimal.offer(ServerSentEvent.builder().data("e").build()));
+        assertEquals(1, emitted.size());
+        try {
+            minimal.subscribe(new SseSink() {
+
+                @Override
+                public void onData(ByteBuffer data) {
+                }
+
+                @Override
+                public void onClose() {
+                }
+
+            });
+            fail("subscribe should not be supported");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    private static BaseSseEmitter emitThree(SseQueueLimits limits, SseEmitResult... expected) {
+        BaseSseEmitter emitter = new BaseSseEmitter(SimpleResponse::builder, limits);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], emitter.offer(ServerSentEvent.builder().data("e" + (i + 1)).build()));
+        }
+        return emitter;
+    }
+
+    private static String readAll(BaseSseEmitter emitter) throws Exception {
+        emitter.close();
+        InputStream body = getStageValue(emitter.getResponseStage()).getBody();
+        return new String(ByteStreams.toByteArray(body), StandardCharsets.UTF_8);
+    }
+
+    @Test(timeout = 5000)
+    public void testBlockedProducerWaitsForRoom() throws Exception {
+        BaseSseEmitter emitter = new BaseSseEmitter(SimpleResponse::builder,
+                SseQueueLimits.blocking(1, 1024, Duration.ofSeconds(30)));
+        InputStream stream = getStageValue(emitter.getResponseStage()).getBody();
+        assertEquals(SseEmitResult.QUEUED, emitter.offer(ServerSentEvent.builder().data("e1").build()));
+
+        CompletableFuture<SseEmitResult> blocked = CompletableFuture.supplyAsync(
+                () -> emitter.offer(ServerSentEvent.builder().data("e2").build()));
+        byte[] buffer = new byte[64];
+        assertEquals(10, stream.read(buffer));
+        assertEquals(SseEmitResult.QUEUED, blocked.get());
+        emitter.close();
+        assertEquals("data: e2\n\n", new String(ByteStreams.toByteArray(stream), StandardCharsets.UTF_8));
+
+        BaseSseEmitter timingOut = new BaseSseEmitter(SimpleResponse::builder,
+                SseQueueLimits.blocking(1, 1024, Duration.ofMillis(10)));
+        timingOut.emit(ServerSentEvent.builder().data("e1").build());
+        assertEquals(SseEmitResult.DROPPED, timingOut.offer(ServerSentEvent.builder().data("e2").build()));
+    }
+
+    @Test
+    public void testResumeReplaysMissedEvents() throws Exception {
+        SseBroadcaster broadcaster = SseBroadcaster.withReplay(3);
+        for (int i = 1; i <= 4; i++) {
+            broadcaster.broadcast(ServerSentEvent.of(null, String.valueOf(i), "e" + i));
+        }
+        BaseSseEmitter resumed = new BaseSseEmitter(SimpleResponse::builder);
+        assertTrue(broadcaster.resume(resumed, requestBuilder("/sse")
+                .headers(ImmutableMap.of("last-event-id", "2"))
+                .build()));
+        BaseSseEmitter tooOld = new BaseSseEmitter(SimpleResponse::builder);
+        assertFalse(broadcaster.resume(tooOld, "1"));
+        BaseSseEmitter fresh = new BaseSseEmitter(SimpleResponse::builder);
+        assertFalse(broadcaster.resume(fresh, (String) null));
+
+        assertEquals(3, broadcaster.broadcast(ServerSentEvent.of(null, "5", "e5")));
+        broadcaster.close();
+        assertEquals("id: 3\ndata: e3\n\nid: 4\ndata: e4\n\nid: 5\ndata: e5\n\n", readAll(resumed));
+        assertEquals("id: 5\ndata: e5\n\n", readAll(tooOld));
+        assertEquals("id: 5\ndata: e5\n\n", readAll(fresh));
+    }
+
+    @Test(timeout = 5000)
+    public void testKeepAliveHeartbeatsIdleEmitters() throws Exception {
+        try (SseKeepAlive keepAlive = SseKeepAlive.create(Duration.ofMillis(100))) {
+            BaseSseEmitter idle = new BaseSseEmitter(SimpleResponse::builder);
+            BaseSseEmitter closed = new BaseSseEmitter(SimpleResponse::builder);
+            closed.close();
+            keepAlive.register(idle);
+            keepAlive.register(closed);
+
+            InputStream stream = getStageValue(idle.getResponseStage()).getBody();
+            byte[] buffer = new byte[64];
+            int read = stream.read(buffer);
+            assertEquals(":\n\n", new String(buffer, 0, read, StandardCharsets.UTF_8));
+            while (keepAlive.size() > 1) {
+                Thread.sleep(10);
+            }
+            idle.close();
+        }
+    }
+
+    @Test
+    public void testConflationKeepsLatestPerKey() throws Exception {
+        BaseSseEmitter emitter = new ConflatingSseEmitter(SimpleResponse::builder,
+                event -> event.getName().orElse(null));
+        assertEquals(SseEmitResult.QUEUED, emitter.offer(ServerSentEvent.of("a", null, "a1")));
+        assertEquals(SseEmitResult.QUEUED, emitter.offer(ServerSentEvent.of("b", null, "b1")));
+        assertEquals(SseEmitResult.QUEUED, emitter.offer(ServerSentEvent.of(null, null, "x")));
+        assertEquals(SseEmitResult.CONFLATED, emitter.offer(ServerSentEvent.of("a", null, "a22")));
+        assertEquals(3, emitter.getQueuedEvents());
+
+        InputStream stream = getStageValue(emitter.getResponseStage()).getBody();
+        byte[] buffer = new byte[64];
+        int read = stream.read(buffer);
+        assertEquals("event: a\ndata: a22\n\n", new String(buffer, 0, read, StandardCharsets.UTF_8));
+        // taken, so the next event for the key is queued again
+        assertEquals(SseEmitResult.QUEUED, emitter.offer(ServerSentEvent.of("a", null, "a3")));
+
+        emitter.close();
+        assertEquals("event: b\ndata: b1\n\ndata: x\n\nevent: a\ndata: a3\n\n",
+                new String(ByteStreams.toByteArray(stream), StandardCharsets.UTF_8));
+        assertEquals(0, emitter.getQueuedBytes());
+    }
+
+    @Test
+    public void testConflationRespectsLimits() throws Exception {
+        BaseSseEmitter capped = new ConflatingSseEmitter(SimpleResponse::builder,
+                SseQueueLimits.of(10, 40, SseOverflowPolicy.DROP_NEWEST),
+                event -> event.getName().orElse(null));
+        assertEquals(SseEmitResult.QUEUED, capped.offer(ServerSentEvent.of(null, null, "x")));
+        assertEquals(SseEmitResult.QUEUED, capped.offer(ServerSentEvent.of("a", null, "1")));
+        assertEquals(27, capped.getQueuedBytes());
+        // would take the queue past the byte cap
+        assertEquals(SseEmitResult.DROPPED, capped.offer(ServerSentEvent.of("a", null, Strings.repeat("2", 20))));
+        assertEquals(27, capped.getQueuedBytes());
+        assertEquals("data: x\n\nevent: a\ndata: 1\n\n", readAll(capped));
+
+        BaseSseEmitter blocking = new ConflatingSseEmitter(SimpleResponse::builder,
+                SseQueueLimits.blocking(1, 1024, Duration.ofMillis(10)),
+                event -> event.getName().orElse(null));
+        assertEquals(SseEmitResult.QUEUED, blocking.offer(ServerSentEvent.of("a", null, "1")));
+        assertEquals(SseEmitResult.DROPPED, blocking.offer(ServerSentEvent.of("b", null, "1")));
+        // the dropped event must not be replaced as if it were queued
+        assertEquals(SseEmitResult.DROPPED, blocking.offer(ServerSentEvent.of("b", null, "2")));
+        assertEquals("event: a\ndata: 1\n\n", readAll(blocking));
+    }
+
 }
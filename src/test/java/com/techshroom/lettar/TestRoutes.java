@@ -24,12 +24,14 @@
  */
 package com.techshroom.lettar;
 
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
 import com.google.common.base.Throwables;
 import com.techshroom.lettar.annotation.NotFoundHandler;
 import com.techshroom.lettar.annotation.ServerErrorHandler;
+import com.techshroom.lettar.pipe.builtins.method.AllMethods;
 import com.techshroom.lettar.pipe.builtins.path.Path;
 import com.techshroom.lettar.pipe.builtins.query.Query;
 
@@ -84,6 +86,32 @@ public class TestRoutes {
         return SimpleResponse.of(200, request.getBody());
     }
 
+    @Path("/echo/{**}")
+    public Response<String> echo(Request<String> request, String rest) {
+        return SimpleResponse.of(200, request.getMethod() + " " + request.getPath() + " " + rest);
+    }
+
+    @Path("/arity/{*}/{*}/{*}/{*}/{*}")
+    public Response<String> arity(String a, int b, Integer c, long d, boolean e) {
+        return SimpleResponse.of(200, a + b + c + d + e);
+    }
+
+    @Path("/typed/{id:int}")
+    public Response<String> typedInt(int id) {
+        return SimpleResponse.of(200, "int " + id);
+    }
+
+    @Path("/typed/{id:uuid}")
+    public Response<String> typedUuid(UUID id) {
+        return SimpleResponse.of(200, "uuid " + id);
+    }
+
+    @Path("/any")
+    @AllMethods
+    public Response<String> anyMethod() {
+        return SimpleResponse.of(200, "Any Method");
+    }
+
     @Path("/async")
     public CompletionStage<Response<String>> asyncOp() {
         return CompletableFuture.supplyAsync(() -> {